@@ -0,0 +1,172 @@
+package game.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+//compares a JMH json result (-rf json) with a stored one: Baseline results.json [baseline.json] [--save]
+public class Baseline {
+    private static final double TOLERANCE = 0.10;
+    private static final String DEFAULT_BASELINE = "bench/baseline.json";
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("usage: Baseline results.json [baseline.json] [--save]");
+            System.exit(2);
+        }
+        Path results = Path.of(args[0]);
+        Path baseline = Path.of(args.length > 1 && !args[1].equals("--save") ? args[1] : DEFAULT_BASELINE);
+        boolean save = List.of(args).contains("--save");
+        if (save) {
+            Files.copy(results, baseline, StandardCopyOption.REPLACE_EXISTING);
+            System.out.println("baseline saved to " + baseline);
+            return;
+        }
+        //a check without anything to compare against must not pass, record one explicitly with --save
+        if (!Files.exists(baseline)) {
+            System.err.println("no baseline at " + baseline + ", run with --save to record one");
+            System.exit(2);
+        }
+
+        Map<String, Score> current = read(results);
+        Map<String, Score> previous = read(baseline);
+        int regressions = 0;
+        for (var entry : current.entrySet()) {
+            Score before = previous.get(entry.getKey());
+            Score after = entry.getValue();
+            if (before == null) {
+                System.out.printf("%-70s %12.3f %s (new)%n", entry.getKey(), after.value(), after.unit());
+                continue;
+            }
+            //positive change is always an improvement, whichever way the mode counts
+            double change = after.higherIsBetter() ?
+                after.value() / before.value() - 1 :
+                before.value() / after.value() - 1;
+            boolean regression = change < -TOLERANCE;
+            if (regression) {
+                regressions++;
+            }
+            System.out.printf(
+                "%-70s %12.3f -> %12.3f %s %+7.1f%%%s%n",
+                entry.getKey(),
+                before.value(),
+                after.value(),
+                after.unit(),
+                100 * change,
+                regression ? "  REGRESSION" : ""
+            );
+        }
+        if (regressions > 0) {
+            System.out.println(regressions + " benchmark(s) regressed by more than " + (int) (100 * TOLERANCE) + "%");
+            System.exit(1);
+        }
+    }
+
+    private record Score(double value, String unit, boolean higherIsBetter) {
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Score> read(Path path) throws IOException {
+        Map<String, Score> scores = new TreeMap<>();
+        for (Object item : (List<Object>) new Json(Files.readString(path)).parse()) {
+            Map<String, Object> run = (Map<String, Object>) item;
+            StringBuilder key = new StringBuilder((String) run.get("benchmark"));
+            Object params = run.get("params");
+            if (params != null) {
+                new TreeMap<>((Map<String, Object>) params).forEach((name, value) ->
+                    key.append(' ').append(name).append('=').append(value));
+            }
+            Map<String, Object> metric = (Map<String, Object>) run.get("primaryMetric");
+            String mode = (String) run.get("mode");
+            scores.put(key.toString(), new Score(
+                ((Number) metric.get("score")).doubleValue(),
+                (String) metric.get("scoreUnit"),
+                "thrpt".equals(mode)
+            ));
+        }
+        return scores;
+    }
+
+    //just enough json for JMH result files
+    private static class Json {
+        private final String text;
+        private int pos;
+
+        private Json(String text) {
+            this.text = text;
+        }
+
+        private Object parse() {
+            skipSpaces();
+            char c = text.charAt(pos);
+            if (c == '{') {
+                Map<String, Object> map = new LinkedHashMap<>();
+                pos++;
+                skipSpaces();
+                while (text.charAt(pos) != '}') {
+                    String name = (String) parse();
+                    skipSpaces();
+                    pos++;
+                    map.put(name, parse());
+                    skipSpaces();
+                    if (text.charAt(pos) == ',') {
+                        pos++;
+                        skipSpaces();
+                    }
+                }
+                pos++;
+                return map;
+            }
+            if (c == '[') {
+                List<Object> list = new ArrayList<>();
+                pos++;
+                skipSpaces();
+                while (text.charAt(pos) != ']') {
+                    list.add(parse());
+                    skipSpaces();
+                    if (text.charAt(pos) == ',') {
+                        pos++;
+                        skipSpaces();
+                    }
+                }
+                pos++;
+                return list;
+            }
+            if (c == '"') {
+                StringBuilder builder = new StringBuilder();
+                pos++;
+                while (text.charAt(pos) != '"') {
+                    if (text.charAt(pos) == '\\') {
+                        pos++;
+                    }
+                    builder.append(text.charAt(pos++));
+                }
+                pos++;
+                return builder.toString();
+            }
+            int start = pos;
+            while (pos < text.length() && ",}] \n\r\t".indexOf(text.charAt(pos)) < 0) {
+                pos++;
+            }
+            String literal = text.substring(start, pos);
+            return switch (literal) {
+                case "true" -> true;
+                case "false" -> false;
+                case "null" -> null;
+                default -> literal.equals("NaN") ? Double.NaN : Double.parseDouble(literal);
+            };
+        }
+
+        private void skipSpaces() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+    }
+}
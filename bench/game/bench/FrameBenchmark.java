@@ -0,0 +1,57 @@
+package game.bench;
+
+import game.Game;
+import game.view.Renderer;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+//a whole Panel frame, drawn offscreen so it runs with -Djava.awt.headless=true
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class FrameBenchmark {
+    @Param({"1280x720", "1920x1080", "3840x2160"})
+    private String resolution;
+    private Game game;
+    private Renderer renderer;
+    private BufferedImage image;
+    private Graphics2D g2d;
+
+    @Setup
+    public void setUp() {
+        String[] size = resolution.split("x");
+        int width = Integer.parseInt(size[0]), height = Integer.parseInt(size[1]);
+        game = Scenes.createGame(Game.BOT_NUMBERS);
+        renderer = new Renderer(game, width, height);
+        image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        g2d = image.createGraphics();
+    }
+
+    @TearDown
+    public void tearDown() {
+        g2d.dispose();
+        game.shutdown();
+    }
+
+    @Benchmark
+    public BufferedImage frame() {
+        renderer.render(g2d, 1);
+        return image;
+    }
+}
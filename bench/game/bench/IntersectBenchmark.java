@@ -0,0 +1,74 @@
+package game.bench;
+
+import game.figure.Circle;
+import game.figure.Line;
+import game.figure.Point;
+import game.util.Geometry;
+import game.util.MathUtils;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IntersectBenchmark {
+    private Line ray;
+    private Line wall;
+    private Circle circle;
+
+    @Setup
+    public void setUp() {
+        ray = MathUtils.getLine(new Point(250, 250), 0.3, 700);
+        wall = new Line(new Point(380, 130), new Point(390, 370));
+        circle = new Circle(new Point(420, 300), 15, null);
+    }
+
+    @Benchmark
+    public Point lineLine() {
+        return MathUtils.intersect(ray, wall);
+    }
+
+    @Benchmark
+    public Point lineCircle() {
+        return MathUtils.intersect(ray, circle);
+    }
+
+    @Benchmark
+    public double raySegment() {
+        return Geometry.raySegment(
+            250,
+            250,
+            Math.cos(0.3),
+            Math.sin(0.3),
+            wall.getX().x(),
+            wall.getX().y(),
+            wall.getY().x(),
+            wall.getY().y()
+        );
+    }
+
+    @Benchmark
+    public double rayCircle() {
+        return Geometry.rayCircle(
+            250,
+            250,
+            Math.cos(0.3),
+            Math.sin(0.3),
+            circle.center().x(),
+            circle.center().y(),
+            circle.radius()
+        );
+    }
+}
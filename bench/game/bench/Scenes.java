@@ -0,0 +1,26 @@
+package game.bench;
+
+import game.Game;
+import game.Player;
+import game.view.Texture;
+import game.view.TextureManager;
+
+//shared setup so every benchmark measures the same arena
+public class Scenes {
+    public static Player createPlayer() {
+        Texture front = TextureManager.getTexture("front.png", true);
+        Texture right = TextureManager.getTexture("right.png", true);
+        Texture back = TextureManager.getTexture("back.png", true);
+        Texture left = TextureManager.getTexture("left.png", true);
+        return new Player(front, right, back, left);
+    }
+
+    //a game that has already run for a second, so bots are spread over the map
+    public static Game createGame(int bots) {
+        Game game = new Game(createPlayer(), bots);
+        for (int i = 0; i < 100; i++) {
+            game.tick();
+        }
+        return game;
+    }
+}
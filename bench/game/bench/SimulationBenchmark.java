@@ -0,0 +1,57 @@
+package game.bench;
+
+import game.BotAI;
+import game.Game;
+import game.Player;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimulationBenchmark {
+    @Param({"3", "30", "300"})
+    private int bots;
+    private Game game;
+    private BotAI botAI;
+    private Player player;
+    private int step;
+
+    @Setup
+    public void setUp() {
+        game = Scenes.createGame(bots);
+        botAI = new BotAI(game, new Random());
+        botAI.setDirections();
+        player = game.getPlayer();
+    }
+
+    //walks in a circle so the player keeps meeting walls instead of pinning against one
+    @Benchmark
+    public void move() {
+        game.move(player, (step++ % 628) / 100.0);
+    }
+
+    @Benchmark
+    public void shoot() {
+        game.shoot(player);
+    }
+
+    @Benchmark
+    public void moveBots() {
+        botAI.moveBots();
+    }
+}
@@ -0,0 +1,46 @@
+package game.bench;
+
+import game.Game;
+import game.SweepCaster;
+import game.util.RayHit;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+//the same view as RayCasterBenchmark built by the visibility polygon sweep
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SweepCasterBenchmark {
+    @Param({"500", "1000", "2000", "3840"})
+    private int lineCount;
+    private Game game;
+    //the camera turns back and forth by a hair, so every call casts the whole view instead of reusing the last one
+    private double turn = 1e-9;
+    private SweepCaster sweepCaster;
+
+    @Setup
+    public void setUp() {
+        game = Scenes.createGame(Game.BOT_NUMBERS);
+        sweepCaster = new SweepCaster(game);
+    }
+
+    @Benchmark
+    public RayHit[] updateLines() {
+        turn = -turn;
+        game.turn(game.getPlayer(), turn);
+        return sweepCaster.cast(game.getPlayer(), game.getPlayer().getPos(), lineCount);
+    }
+}
@@ -1,74 +1,233 @@
 package game;
 
-import game.figure.Line;
-import game.util.MathUtils;
-
-import java.util.*;
+import game.figure.Point;
+import game.util.Collider;
+import game.util.FlowField;
+import game.util.NavGrid;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import static game.Player.PLAYER_WIDTH;
 
+//bots read a snapshot of every participant taken at the start of the tick and write into a back buffer,
+//so they can be updated in parallel and never see each other half-moved; shots are applied afterwards in order,
+//and with them the damage, so health never changes during the parallel pass and stays on the players.
+//a bot that sees an enemy strafes in a random direction, otherwise it walks the flow field towards the closest player;
+//the fields are shared by all bots
 public class BotAI {
+    private static final int BATCH_SIZE = 16;
+    private static final int SHOT_COOLDOWN = 10;
     private final Game game;
-    private final Map<Player, Double> botsDirections;
-    private final Map<Player, Integer> lastShot;
+    private final Random random;
+    private final ThreadLocal<Collider> colliders;
+    private NavGrid navGrid;
+    private FlowField[] playerFields = new FlowField[0];
+    private int playerCount;
+    private ForkJoinPool pool;
     private final double[] directions =
         {0, Math.PI / 4, Math.PI / 2, 3 * Math.PI / 4, Math.PI, -3 * Math.PI / 4, -Math.PI / 2, -Math.PI / 4};
+    //per bot
+    private double[] botDirections = new double[0];
+    private double[] speeds = new double[0];
+    private int[] cooldowns = new int[0];
+    private double[] nextX = new double[0];
+    private double[] nextY = new double[0];
+    private double[] nextAlpha = new double[0];
+    private boolean[] shots = new boolean[0];
+    //per participant, bodies packed as [x, y, r] for the collider
+    private double[] bodies = new double[0];
+    private double[] alphas = new double[0];
 
-    public BotAI(Game game) {
+    public BotAI(Game game, Random random) {
         this.game = game;
-        botsDirections = new HashMap<>();
-        lastShot = new HashMap<>();
+        this.random = random;
+        colliders = ThreadLocal.withInitial(() -> new Collider(game.getGrid()));
+    }
+
+    public void setWorkers(int workers) {
+        if (pool != null) {
+            pool.shutdown();
+        }
+        pool = workers > 1 ? new ForkJoinPool(workers) : null;
     }
 
     public void moveBots() {
-        for (var bot : game.getBots()) {
-            move(bot);
+        List<Player> bots = game.getBots();
+        int count = game.getParticipantCount();
+        ensureCapacity(bots.size(), count);
+        for (int i = 0; i < count; i++) {
+            Player participant = game.getParticipant(i);
+            bodies[3 * i] = participant.getPos().x();
+            bodies[3 * i + 1] = participant.getPos().y();
+            bodies[3 * i + 2] = PLAYER_WIDTH;
+            alphas[i] = participant.getAlpha();
+        }
+        for (int i = 0; i < bots.size(); i++) {
+            speeds[i] = bots.get(i).getSpeed();
+        }
+        playerCount = game.getPlayers().size();
+        if (navGrid != game.getNavGrid()) {
+            navGrid = game.getNavGrid();
+            playerFields = new FlowField[0];
+        }
+        if (playerFields.length < playerCount) {
+            playerFields = Arrays.copyOf(playerFields, playerCount);
+        }
+        for (int i = 0; i < playerCount; i++) {
+            if (playerFields[i] == null) {
+                playerFields[i] = new FlowField(navGrid);
+            }
+            playerFields[i].update(navGrid.cell(bodies[3 * i], bodies[3 * i + 1]));
+        }
+
+        if (pool == null) {
+            update(0, bots.size());
+        } else {
+            pool.invoke(new Batch(0, bots.size()));
+        }
+
+        for (int i = 0; i < bots.size(); i++) {
+            Player bot = bots.get(i);
+            int index = playerCount + i;
+            if (nextX[i] != bodies[3 * index] || nextY[i] != bodies[3 * index + 1]) {
+                bot.setPos(new Point(nextX[i], nextY[i]));
+            }
+            bot.setAlpha(nextAlpha[i]);
+        }
+        for (int i = 0; i < bots.size(); i++) {
+            if (shots[i]) {
+                game.shoot(bots.get(i));
+            }
+        }
+    }
+
+    private void ensureCapacity(int botCount, int participantCount) {
+        if (botDirections.length != botCount) {
+            botDirections = new double[botCount];
+            speeds = new double[botCount];
+            cooldowns = new int[botCount];
+            nextX = new double[botCount];
+            nextY = new double[botCount];
+            nextAlpha = new double[botCount];
+            shots = new boolean[botCount];
+        }
+        if (alphas.length != participantCount) {
+            bodies = new double[3 * participantCount];
+            alphas = new double[participantCount];
         }
     }
 
     public void setDirections() {
-        for (var bot : game.getBots()) {
-            botsDirections.put(bot, directions[new Random().nextInt(8)]);
+        ensureCapacity(game.getBots().size(), game.getParticipantCount());
+        for (int i = 0; i < botDirections.length; i++) {
+            botDirections[i] = directions[random.nextInt(directions.length)];
         }
     }
 
-    private void move(Player bot) {
-        game.move(bot, botsDirections.getOrDefault(bot, 0.0));
-        lastShot.put(bot, lastShot.getOrDefault(bot, 0) + 1);
+    //reads only the snapshot and the bots' own slots, so any range can run on any thread
+    private void update(int from, int to) {
+        Collider collider = colliders.get();
+        collider.setGrid(game.getGrid());
+        Visibility visibility = game.getVisibility();
+        double[] pos = new double[2];
+        for (int i = from; i < to; i++) {
+            int index = playerCount + i;
+            pos[0] = bodies[3 * index];
+            pos[1] = bodies[3 * index + 1];
 
-        List<Player> visibleEnemies = new ArrayList<>();
-        for (Player enemy : game.getEnemies(bot)) {
-            if (game.isVisible(bot, enemy)) {
-                visibleEnemies.add(enemy);
+            //aim at the closest visible enemy, or at the closest one at all when none is visible, by squared distance
+            double min = Double.MAX_VALUE, minVisible = Double.MAX_VALUE;
+            int closest = -1, closestVisible = -1;
+            for (int k = 0; k < alphas.length; k++) {
+                if (k == index) {
+                    continue;
+                }
+                double kx = bodies[3 * k] - pos[0], ky = bodies[3 * k + 1] - pos[1];
+                double cur = kx * kx + ky * ky;
+                if (cur < min) {
+                    min = cur;
+                    closest = k;
+                }
+                if (cur < minVisible && visibility.isVisible(index, k)) {
+                    minVisible = cur;
+                    closestVisible = k;
+                }
+            }
+            if (closestVisible >= 0) {
+                min = minVisible;
+                closest = closestVisible;
             }
-        }
-        if (visibleEnemies.isEmpty()) {
-            visibleEnemies = game.getEnemies(bot);
-        }
 
-        double min = Integer.MAX_VALUE;
-        Player closestEnemy = null;
-        for (Player visibleEnemy : visibleEnemies) {
-            double cur = MathUtils.dist(visibleEnemy.getPos(), bot.getPos());
-            if (cur < min) {
-                min = cur;
-                closestEnemy = visibleEnemy;
+            double alpha = Double.NaN;
+            if (closestVisible < 0) {
+                int player = -1;
+                double minPlayer = Double.MAX_VALUE;
+                for (int k = 0; k < playerCount; k++) {
+                    double kx = bodies[3 * k] - pos[0], ky = bodies[3 * k + 1] - pos[1];
+                    if (kx * kx + ky * ky < minPlayer) {
+                        minPlayer = kx * kx + ky * ky;
+                        player = k;
+                    }
+                }
+                if (player >= 0) {
+                    alpha = playerFields[player].getDirection(navGrid.cell(pos[0], pos[1]));
+                }
             }
+            if (Double.isNaN(alpha)) {
+                alpha = alphas[index] + botDirections[i];
+            }
+            collider.move(
+                pos,
+                Math.cos(alpha) * speeds[i],
+                Math.sin(alpha) * speeds[i],
+                PLAYER_WIDTH,
+                bodies,
+                alphas.length,
+                index
+            );
+            nextX[i] = pos[0];
+            nextY[i] = pos[1];
+            cooldowns[i]++;
+            shots[i] = closestVisible >= 0 && min > 0 && cooldowns[i] > SHOT_COOLDOWN;
+            if (shots[i]) {
+                cooldowns[i] = 0;
+            }
+            if (closest < 0) {
+                nextAlpha[i] = alphas[index];
+                continue;
+            }
+
+            double dx = bodies[3 * closest] - pos[0], dy = bodies[3 * closest + 1] - pos[1];
+            double angleDistance = (Math.atan2(dy, dx) + 2 * Math.PI) % (2 * Math.PI) - alphas[index];
+            if (angleDistance > Math.PI) {
+                angleDistance -= 2 * Math.PI;
+            } else if (angleDistance < -Math.PI) {
+                angleDistance += 2 * Math.PI;
+            }
+            nextAlpha[i] = alphas[index] + angleDistance / 7;
         }
-        if (closestEnemy == null) {
-            return;
-        }
+    }
+
+    @SuppressWarnings("serial")
+    private class Batch extends RecursiveAction {
+        private final int from;
+        private final int to;
 
-        Line line = new Line(bot.getPos(), closestEnemy.getPos());
-        game.intersect(bot, line);
-        if (MathUtils.inPolygon(line.getY(), closestEnemy.getModel()) && lastShot.get(bot) > 10) {
-            game.shoot(bot);
-            lastShot.put(bot, 0);
+        private Batch(int from, int to) {
+            this.from = from;
+            this.to = to;
         }
-        double angleDistance = MathUtils.getAngle(new Line(bot.getPos(), closestEnemy.getPos())) - bot.getAlpha();
-        if (angleDistance > Math.PI) {
-            angleDistance -= 2 * Math.PI;
-        } else if (angleDistance < -Math.PI) {
-            angleDistance += 2 * Math.PI;
+
+        @Override
+        protected void compute() {
+            if (to - from <= BATCH_SIZE) {
+                update(from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Batch(from, middle), new Batch(middle, to));
         }
-        game.turn(bot, angleDistance / 7);
     }
 }
@@ -0,0 +1,62 @@
+package game;
+
+import game.figure.Point;
+import game.map.GameMap;
+import game.map.MapSource;
+import game.util.RayHit;
+import game.view.Texture;
+import game.view.TextureManager;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+
+//draws the same random views of the given maps with RayCaster and SweepCaster and compares them column by column:
+//-Dshooter.views and -Dshooter.columns; exits with 1 when a column sees another figure or another distance
+public class CasterCheck {
+    private static final double TOLERANCE = 1e-6;
+
+    public static void main(String[] args) throws IOException {
+        int views = Integer.getInteger("shooter.views", 2000);
+        int columns = Integer.getInteger("shooter.columns", 1280);
+        Texture front = TextureManager.getTexture("front.png", true);
+        Texture right = TextureManager.getTexture("right.png", true);
+        Texture back = TextureManager.getTexture("back.png", true);
+        Texture left = TextureManager.getTexture("left.png", true);
+
+        long mismatches = 0;
+        for (String map : args.length == 0 ? new String[] {"maps/arena.bin", "maps/overlap.map"} : args) {
+            Random random = new Random(1);
+            Player player = new Player(front, right, back, left);
+            Game game = new Game(new MapSource(GameMap.load(Path.of(map))), 0, random);
+            game.addPlayer(player);
+            game.setSynchronousLoading(true);
+            game.tick();
+            RayCaster rays = new RayCaster(game, 1);
+            SweepCaster sweep = new SweepCaster(game);
+
+            long mapMismatches = 0;
+            for (int view = 0; view < views; view++) {
+                Point pos = new Point(random.nextDouble() * game.SIZE, random.nextDouble() * game.SIZE);
+                player.setAlpha(random.nextDouble() * 2 * Math.PI);
+                RayHit[] expected = rays.cast(player, pos, columns);
+                RayHit[] actual = sweep.cast(player, pos, columns);
+                for (int column = 0; column < expected.length; column++) {
+                    if (!same(expected[column], actual[column])) {
+                        mapMismatches++;
+                    }
+                }
+            }
+            game.shutdown();
+            System.out.printf("%s: %d views of %d columns, %d mismatched%n", map, views, columns + 1, mapMismatches);
+            mismatches += mapMismatches;
+        }
+        if (mismatches > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static boolean same(RayHit expected, RayHit actual) {
+        return expected.getFigure() == actual.getFigure() && expected.getWall() == actual.getWall() &&
+            Math.abs(expected.getDistance() - actual.getDistance()) <= TOLERANCE;
+    }
+}
@@ -1,78 +1,225 @@
 package game;
 
+import game.figure.Point;
+import game.net.Connection;
+import game.net.Protocol;
+import game.net.WorldState;
 import game.view.Frame;
 import game.view.Panel;
 import game.view.Texture;
-import javax.swing.Timer;
+import game.view.TextureManager;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationTargetException;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import javax.swing.SwingUtilities;
 
 public class Client {
+    private static final long FRAME_NANOS = 3_000_000L;
     private Game game;
     private Player player;
     private Panel panel;
-    private boolean moveLeft;
-    private boolean moveRight;
-    private boolean moveBackward;
-    private boolean moveForward;
+    private GameLoop loop;
+    private volatile boolean moveLeft;
+    private volatile boolean moveRight;
+    private volatile boolean moveBackward;
+    private volatile boolean moveForward;
+    private double pendingTurn;
+    private int pendingShots;
+    //the tick that was on screen when the last queued shot was fired
+    private int pendingShotTick;
+    //set when playing on a server, the game is then only a mirror of the received snapshots
+    private Connection connection;
+    private final Map<Integer, Player> remotePlayers = new HashMap<>();
+    //set with -Dshooter.record in a local game
+    private Recorder recorder;
 
     public void startGame() {
-        Texture front = new Texture("front.png", true);
-        Texture right = new Texture("right.png", true);
-        Texture back = new Texture("back.png", true);
-        Texture left = new Texture("left.png", true);
+        Texture front = TextureManager.getTexture("front.png", true);
+        Texture right = TextureManager.getTexture("right.png", true);
+        Texture back = TextureManager.getTexture("back.png", true);
+        Texture left = TextureManager.getTexture("left.png", true);
         player = new Player(front, right, back, left);
-        game = new Game(player);
+        String server = System.getProperty("shooter.server");
+        if (server == null) {
+            long seed = Long.getLong("shooter.seed", System.nanoTime());
+            game = new Game(player, Game.BOT_NUMBERS, new Random(seed));
+            String record = System.getProperty("shooter.record");
+            if (record != null) {
+                record(Path.of(record), seed);
+            }
+        } else {
+            connect(server);
+            game = new Game(player, 0);
+        }
+        if ("sweep".equals(System.getProperty("shooter.render"))) {
+            game.setViewCaster(new SweepCaster(game));
+        } else {
+            game.setRayWorkers(Integer.getInteger("shooter.rayWorkers", Runtime.getRuntime().availableProcessors()));
+        }
+        game.setBotWorkers(Integer.getInteger("shooter.botWorkers", Runtime.getRuntime().availableProcessors()));
 
         panel = new Panel(this);
         new Frame(panel, this);
 
-        Timer moveUpdate = new Timer(3, e -> {
-            if (isMoveLeft() || isMoveRight() || isMoveBackward() || isMoveForward()) {
+        loop = new GameLoop(this::tick, this::render, FRAME_NANOS);
+        loop.start();
+    }
+
+    //host or host:port
+    private void connect(String server) {
+        int colon = server.lastIndexOf(':');
+        try {
+            connection = new Connection(colon < 0 ?
+                new InetSocketAddress(server, Protocol.DEFAULT_PORT) :
+                new InetSocketAddress(server.substring(0, colon), Integer.parseInt(server.substring(colon + 1))));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                connection.close();
+            } catch (IOException ignored) {
+            }
+        }));
+    }
+
+    private void record(Path path, long seed) {
+        try {
+            recorder = new Recorder(path, game.getSource(), seed, Game.BOT_NUMBERS);
+            game.setSynchronousLoading(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            synchronized (game) {
+                try {
+                    recorder.finish(game);
+                } catch (IOException ignored) {
+                }
+            }
+        }));
+    }
+
+    //input from the event thread is queued and applied on the next tick
+    private void tick() {
+        double turn;
+        int shots, shotTick;
+        synchronized (this) {
+            turn = pendingTurn;
+            shots = pendingShots;
+            shotTick = pendingShotTick;
+            pendingTurn = 0;
+            pendingShots = 0;
+        }
+        if (connection != null) {
+            tickRemote(turn, shots);
+            return;
+        }
+        boolean forward = moveForward, backward = moveBackward, left = moveLeft, right = moveRight;
+        double move = Game.getMoveAngle(forward, backward, left, right);
+        synchronized (game) {
+            if (recorder != null && recorder.isClosed()) {
+                return;
+            }
+            game.tick();
+            if (recorder != null) {
+                try {
+                    recorder.record(forward, backward, left, right, turn, shots, shotTick);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            game.applyInput(player, move, turn, shots, shotTick);
+            if (!Double.isNaN(move)) {
                 panel.keepMoving();
-                move();
             } else {
                 panel.stopMoving();
             }
-            panel.repaint();
-        });
-        moveUpdate.start();
+        }
     }
 
-    public void move() {
-        int dir = 0;
-        if (moveForward) {
-            dir += 3;
-        }
-        if (moveBackward) {
-            dir -= 3;
-        }
-        if (moveLeft) {
-            dir += 1;
+    //sends the input to the server and shows the newest snapshot, nothing is simulated locally
+    private void tickRemote(double turn, int shots) {
+        try {
+            connection.sendInput(getMoveAngle(), turn, shots);
+            WorldState state = connection.poll();
+            synchronized (game) {
+                game.tick();
+                if (state != null) {
+                    apply(state);
+                }
+                if (!Double.isNaN(getMoveAngle())) {
+                    panel.keepMoving();
+                } else {
+                    panel.stopMoving();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        if (moveRight) {
-            dir -= 1;
+    }
+
+    private void apply(WorldState state) {
+        Set<Integer> present = new HashSet<>();
+        for (int i = 0; i < state.getCount(); i++) {
+            int id = state.getId(i);
+            present.add(id);
+            Player participant = id == connection.getId() ? player : remotePlayers.computeIfAbsent(id, key -> {
+                Player remote = new Player(
+                    TextureManager.getTexture("front.png", true),
+                    TextureManager.getTexture("right.png", true),
+                    TextureManager.getTexture("back.png", true),
+                    TextureManager.getTexture("left.png", true)
+                );
+                game.addPlayer(remote);
+                return remote;
+            });
+            participant.setPos(new Point(
+                Protocol.position(state.getValue(i, WorldState.X)),
+                Protocol.position(state.getValue(i, WorldState.Y))
+            ));
+            participant.setAlpha(Protocol.angle(state.getValue(i, WorldState.ALPHA)));
+            participant.setHealthPoints(state.getValue(i, WorldState.HEALTH));
+            participant.setKills(state.getValue(i, WorldState.KILLS));
+            participant.setDeaths(state.getValue(i, WorldState.DEATHS));
         }
-        double alpha = switch (dir) {
-            case 4 -> Math.PI / 4;
-            case 3 -> 0;
-            case 2 -> -Math.PI / 4;
-            case 1 -> Math.PI / 2;
-            case -1 -> -Math.PI / 2;
-            case -2 -> 3 * Math.PI / 4;
-            case -3 -> Math.PI;
-            case -4 -> -3 * Math.PI / 4;
-            default -> -1;
-        };
-        if (alpha != -1) {
-            game.move(player, alpha);
+        remotePlayers.entrySet().removeIf(entry -> {
+            if (present.contains(entry.getKey())) {
+                return false;
+            }
+            game.removePlayer(entry.getValue());
+            return true;
+        });
+    }
+
+    private void render(double interpolation) {
+        try {
+            SwingUtilities.invokeAndWait(() -> panel.render(interpolation));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (InvocationTargetException e) {
+            throw new RuntimeException(e.getCause());
         }
     }
 
-    public void turn(double alpha) {
-        game.turn(player, alpha);
+    private double getMoveAngle() {
+        return Game.getMoveAngle(moveForward, moveBackward, moveLeft, moveRight);
+    }
+
+    public synchronized void turn(double alpha) {
+        pendingTurn += alpha;
     }
 
-    public void shoot() {
-        game.shoot(player);
+    public synchronized void shoot() {
+        pendingShots++;
+        pendingShotTick = game.getTicks();
     }
 
     public Game getGame() {
@@ -1,175 +1,251 @@
 package game;
 
-import game.figure.Circle;
 import game.figure.Figure;
-import game.figure.Line;
 import game.figure.Point;
-import game.figure.Polygon;
+import game.map.ChunkSource;
+import game.map.ChunkStreamer;
+import game.map.Region;
+import game.util.ChunkGrid;
+import game.util.Collider;
+import game.util.Geometry;
 import game.util.MathUtils;
+import game.util.NavGrid;
+import game.util.Profiler;
+import game.util.Profiler.Phase;
+import game.util.RayHit;
 import game.view.Texture;
+import game.view.TextureManager;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
-import javax.swing.Timer;
+import java.util.Random;
 import static game.Player.PLAYER_WIDTH;
-import static game.Player.STEP_LENGTH;
-import static game.Player.VIEW_ANGLE;
 
 public class Game {
-    private final Player player;
+    private final List<Player> players;
     private final List<Player> bots;
-    private final List<Figure> figures;
+    private List<Figure> figures;
+    private final ChunkSource source;
     private final List<Point> spawns;
-    private List<Line> lines;
+    private RayHit[] hits;
+    private final ChunkStreamer streamer;
+    private ChunkGrid grid;
+    private NavGrid navGrid;
+    private final Collider collider;
+    private double[] bodies = new double[0];
+    private double[] positions = new double[0];
+    private ViewCaster viewCaster;
+    private final Visibility visibility;
     private final BotAI botAI;
-    public final double SIZE = 500;
+    private final PoseHistory poseHistory = new PoseHistory();
+    private final RayHit shotHit = new RayHit();
+    public final double SIZE;
     public final double LINE_LENGTH = 700;
     public final int LINE_COUNT = 1000;
-    private final int BOT_NUMBERS = 3;
+    public static final int BOT_NUMBERS = 3;
+    private final int botCount;
     private final int DAMAGE = 25;
-    private int kills = 0;
-    private int deaths = 0;
+    private final int DIRECTION_TICKS = GameLoop.TICKS_PER_SECOND;
+    private int ticks = 0;
+    //ids are sent as 16 bits, once they run out the ones freed longest ago are handed out again
+    private static final int ID_LIMIT = 1 << 16;
+    private int nextId = 0;
+    private final ArrayDeque<Integer> freeIds = new ArrayDeque<>();
 
     public Game(Player player) {
-        this.player = player;
+        this(player, BOT_NUMBERS);
+    }
+
+    public Game(Player player, int botCount) {
+        this(player, botCount, new Random());
+    }
+
+    //random drives every decision of the bots, with the same seed and input the game plays out the same way
+    public Game(Player player, int botCount, Random random) {
+        this(botCount, random);
+        addPlayer(player);
+    }
+
+    //a game without players yet, they join through addPlayer
+    public Game(int botCount) {
+        this(botCount, new Random());
+    }
+
+    public Game(int botCount, Random random) {
+        this(ChunkSource.getDefault(), botCount, random);
+    }
+
+    public Game(ChunkSource source, int botCount, Random random) {
+        this.botCount = botCount;
+        players = new ArrayList<>();
         bots = new ArrayList<>();
-        figures = new ArrayList<>();
-        lines = new ArrayList<>();
-        spawns = new ArrayList<>();
-        initMap();
-        initSpawns();
-        spawn(player);
+        hits = new RayHit[0];
+        this.source = source;
+        spawns = source.getSpawns();
+        SIZE = source.getSize();
+        viewCaster = new RayCaster(this, 1);
         initBots();
 
-        botAI = new BotAI(this);
-        Timer setDirectionsTimer = new Timer(1000, e -> botAI.setDirections());
-        setDirectionsTimer.start();
-        Timer moveBotsTimer = new Timer(10, e -> botAI.moveBots());
-        moveBotsTimer.start();
-    }
-
-    private void initMap() {
-        Texture bricks = new Texture("bricks.png");
-        Texture planks = new Texture("planks.png");
-        Texture wood = new Texture("wood.png");
-        Texture stoneBricks = new Texture("stone_bricks.png");
-        Texture stone = new Texture("stone.png");
-        Texture birch = new Texture("birch.png");
-
-        figures.add(new Polygon(List.of(
-            new Point(50, 50),
-            new Point(450, 50),
-            new Point(450, 450),
-            new Point(50, 450)
-        ), planks));
-        figures.add(new Circle(new Point(50, 50), 50, wood));
-        figures.add(new Circle(new Point(450, 50), 50, wood));
-        figures.add(new Circle(new Point(50, 450), 50, wood));
-        figures.add(new Circle(new Point(450, 450), 50, wood));
-        figures.add(new Polygon(List.of(
-            new Point(110, 130),
-            new Point(110, 230),
-            new Point(120, 230),
-            new Point(120, 130)
-        ), stoneBricks));
-        figures.add(new Polygon(List.of(
-            new Point(110, 270),
-            new Point(110, 370),
-            new Point(120, 370),
-            new Point(120, 270)
-        ), bricks));
-        figures.add(new Polygon(List.of(
-            new Point(390, 130),
-            new Point(390, 230),
-            new Point(380, 230),
-            new Point(380, 130)
-        ), bricks));
-        figures.add(new Polygon(List.of(
-            new Point(390, 270),
-            new Point(390, 370),
-            new Point(380, 370),
-            new Point(380, 270)
-        ), stoneBricks));
-        figures.add(new Circle(new Point(80, 250), 8, birch));
-        figures.add(new Circle(new Point(420, 250), 8, birch));
-        figures.add(new Polygon(List.of(
-            new Point(160, 100),
-            new Point(160, 140),
-            new Point(230, 140),
-            new Point(230, 100)
-        ), stone));
-        figures.add(new Polygon(List.of(
-            new Point(340, 400),
-            new Point(340, 360),
-            new Point(270, 360),
-            new Point(270, 400)
-        ), stone));
-        figures.add(new Circle(new Point(270, 120), 15, wood));
-        figures.add(new Circle(new Point(230, 380), 15, wood));
-        figures.add(new Polygon(List.of(
-            new Point(310, 110),
-            new Point(310, 120),
-            new Point(350, 120),
-            new Point(350, 110)
-        ), stoneBricks));
-        figures.add(new Polygon(List.of(
-            new Point(190, 390),
-            new Point(190, 380),
-            new Point(150, 380),
-            new Point(150, 390)
-        ), stoneBricks));
-    }
-
-    private void initSpawns() {
-        spawns.add(new Point(80, 150));
-        spawns.add(new Point(80, 350));
-        spawns.add(new Point(420, 150));
-        spawns.add(new Point(420, 350));
-        spawns.add(new Point(250, 75));
-        spawns.add(new Point(250, 425));
+        streamer = new ChunkStreamer(source, LINE_LENGTH, PLAYER_WIDTH);
+        int count = getPositions();
+        Region region = streamer.load(positions, count);
+        grid = region.grid();
+        navGrid = region.navGrid();
+        figures = region.figures();
+        collider = new Collider(grid);
+        visibility = new Visibility(this);
+        visibility.update();
+        botAI = new BotAI(this, random);
+    }
+
+    //advances the world by one fixed step of GameLoop.TICK_NANOS
+    public void tick() {
+        for (int i = 0; i < getParticipantCount(); i++) {
+            getParticipant(i).savePos();
+        }
+        int count = getPositions();
+        streamer.request(positions, count);
+        Region region = streamer.poll();
+        if (region != null) {
+            grid = region.grid();
+            navGrid = region.navGrid();
+            figures = region.figures();
+            collider.setGrid(grid);
+            visibility.invalidate();
+        }
+        poseHistory.record(this, ticks);
+        visibility.update();
+        long start = Profiler.start();
+        if (ticks % DIRECTION_TICKS == 0) {
+            botAI.setDirections();
+        }
+        botAI.moveBots();
+        Profiler.stop(Phase.BOT_TICK, start);
+        ticks++;
+    }
+
+    //fills positions with everyone's [x, y], or with the spawns while nobody is in the game, returns how many
+    private int getPositions() {
+        int count = getParticipantCount() > 0 ? getParticipantCount() : spawns.size();
+        if (positions.length < 2 * count) {
+            positions = new double[2 * count];
+        }
+        for (int i = 0; i < count; i++) {
+            Point pos = getParticipantCount() > 0 ? getParticipant(i).getPos() : spawns.get(i);
+            positions[2 * i] = pos.x();
+            positions[2 * i + 1] = pos.y();
+        }
+        return count;
     }
 
     private void initBots() {
-        Texture front = new Texture("front.png", true);
-        Texture right = new Texture("right.png", true);
-        Texture back = new Texture("back.png", true);
-        Texture left = new Texture("left.png", true);
-        for (int i = 0; i < BOT_NUMBERS; i++) {
+        Texture front = TextureManager.getTexture("front.png", true);
+        Texture right = TextureManager.getTexture("right.png", true);
+        Texture back = TextureManager.getTexture("back.png", true);
+        Texture left = TextureManager.getTexture("left.png", true);
+        for (int i = 0; i < botCount; i++) {
             Player bot = new Player(front, right, back, left);
+            bot.setId(newId());
             bots.add(bot);
             spawn(bot);
         }
     }
 
+    //gives the player an id unique in this game and spawns it away from everyone else
+    public void addPlayer(Player player) {
+        player.setId(newId());
+        players.add(player);
+        spawn(player);
+    }
+
+    public void removePlayer(Player player) {
+        if (players.remove(player)) {
+            freeIds.add(player.getId());
+        }
+        poseHistory.forget(player);
+    }
+
+    private int newId() {
+        if (nextId < ID_LIMIT) {
+            return nextId++;
+        }
+        if (freeIds.isEmpty()) {
+            throw new IllegalStateException("No free participant ids left");
+        }
+        return freeIds.remove();
+    }
+
     private void spawn(Player player) {
         player.setPos(getSpawn(player));
+        player.savePos();
         player.setHealthPoints(100);
     }
 
+    //steps the player by its speed, sliding along walls and other players instead of stopping at them
     public void move(Player player, double alpha) {
         alpha += player.getAlpha();
-        Point newPos = new Point(
-            player.getPos().x() + Math.cos(alpha) * STEP_LENGTH,
-            player.getPos().y() + Math.sin(alpha) * STEP_LENGTH
+        if (bodies.length < 3 * getParticipantCount()) {
+            bodies = new double[3 * getParticipantCount()];
+        }
+        int count = 0;
+        for (int i = 0; i < getParticipantCount(); i++) {
+            Player enemy = getParticipant(i);
+            if (enemy != player) {
+                bodies[3 * count] = enemy.getPos().x();
+                bodies[3 * count + 1] = enemy.getPos().y();
+                bodies[3 * count + 2] = PLAYER_WIDTH;
+                count++;
+            }
+        }
+        double[] pos = {player.getPos().x(), player.getPos().y()};
+        collider.move(
+            pos,
+            Math.cos(alpha) * player.getSpeed(),
+            Math.sin(alpha) * player.getSpeed(),
+            PLAYER_WIDTH,
+            bodies,
+            count
         );
+        player.setPos(new Point(pos[0], pos[1]));
+    }
 
-        List<Line> walls = getWalls(player);
-        for (Line wall : walls) {
-            Line shortestWay = MathUtils.shortestWay(newPos, wall);
-            if (MathUtils.length(shortestWay) > PLAYER_WIDTH) {
-                continue;
-            }
-            Line distanceBetweenWall =
-                MathUtils.getLine(shortestWay.getY(), MathUtils.getAngle(shortestWay) + Math.PI, PLAYER_WIDTH);
-            newPos = distanceBetweenWall.getY();
+    //one tick of a player's input in the order both the client and the server apply it, move is NaN when standing
+    public void applyInput(Player player, double move, double turn, int shots, int shotTick) {
+        turn(player, turn);
+        for (int i = 0; i < shots; i++) {
+            shoot(player, shotTick);
         }
+        if (!Double.isNaN(move)) {
+            move(player, move);
+        }
+    }
 
-        for (Line wall : walls) {
-            Line shortestWay = MathUtils.shortestWay(newPos, wall);
-            if (MathUtils.length(shortestWay) + MathUtils.EPS < PLAYER_WIDTH) {
-                return;
-            }
+    //direction of the held keys relative to the view, NaN when they cancel out or none is held
+    public static double getMoveAngle(boolean forward, boolean backward, boolean left, boolean right) {
+        int dir = 0;
+        if (forward) {
+            dir += 3;
+        }
+        if (backward) {
+            dir -= 3;
+        }
+        if (left) {
+            dir += 1;
         }
-        player.setPos(newPos);
+        if (right) {
+            dir -= 1;
+        }
+        return switch (dir) {
+            case 4 -> Math.PI / 4;
+            case 3 -> 0;
+            case 2 -> -Math.PI / 4;
+            case 1 -> Math.PI / 2;
+            case -1 -> -Math.PI / 2;
+            case -2 -> 3 * Math.PI / 4;
+            case -3 -> Math.PI;
+            case -4 -> -3 * Math.PI / 4;
+            default -> Double.NaN;
+        };
     }
 
     public void turn(Player player, double alpha) {
@@ -177,96 +253,110 @@ public class Game {
     }
 
     public void shoot(Player player) {
-        Line line = MathUtils.getLine(player.getPos(), player.getAlpha(), Integer.MAX_VALUE);
-        intersect(player, line);
-        for (Player enemy : getEnemies(player)) {
-            if (MathUtils.inPolygon(line.getY(), enemy.getModel())) {
-                enemy.setHealthPoints(enemy.getHealthPoints() - DAMAGE);
-                if (enemy.getHealthPoints() <= 0) {
-                    if (player == this.player) {
-                        kills++;
-                    }
-                    if (enemy == this.player) {
-                        deaths++;
-                    }
-                    spawn(enemy);
-                }
-            }
-        }
+        shotHit.reset(Double.MAX_VALUE);
+        castRay(player, player.getPos().x(), player.getPos().y(),
+            Math.cos(player.getAlpha()), Math.sin(player.getAlpha()), shotHit);
+        damage(player, shotHit.getPlayer());
     }
 
-    public void updateLines() {
-        double delta = VIEW_ANGLE / LINE_COUNT;
-        double start = player.getAlpha() - VIEW_ANGLE / 2;
-        double end = player.getAlpha() + VIEW_ANGLE / 2;
-        List<Line> newLines = new ArrayList<>();
-        for (double i = end; i >= start; i -= delta) {
-            Line newLine = MathUtils.getLine(player.getPos(), i, LINE_LENGTH);
-            intersect(player, newLine);
-            newLines.add(newLine);
+    //for input that arrives late: the shooter aims from where it is now, but the targets are where it saw them
+    //at the given tick, clamped to the oldest one still kept
+    public void shoot(Player player, int tick) {
+        tick = Math.max(tick, ticks - PoseHistory.CAPACITY);
+        if (!poseHistory.contains(tick)) {
+            shoot(player);
+            return;
         }
-        lines = newLines;
+        double ox = player.getPos().x(), oy = player.getPos().y();
+        double dx = Math.cos(player.getAlpha()), dy = Math.sin(player.getAlpha());
+        shotHit.reset(Double.MAX_VALUE);
+        grid.intersect(ox, oy, dx, dy, shotHit);
+        poseHistory.castRay(tick, player, ox, oy, dx, dy, shotHit);
+        damage(player, shotHit.getPlayer());
     }
 
-    public void intersect(Player player, Line line) {
-        for (Figure figure : figures) {
-            if (figure instanceof Circle circle) {
-                intersect(line, circle);
-            } else if (figure instanceof Polygon polygon) {
-                intersect(line, polygon);
-            }
+    private void damage(Player player, Player enemy) {
+        if (enemy == null) {
+            return;
         }
-        for (var enemy : getEnemies(player)) {
-            intersect(line, enemy.getModel());
+        enemy.setHealthPoints(enemy.getHealthPoints() - DAMAGE);
+        if (enemy.getHealthPoints() <= 0) {
+            player.setKills(player.getKills() + 1);
+            enemy.setDeaths(enemy.getDeaths() + 1);
+            spawn(enemy);
         }
     }
 
-    private void intersect(Line line, Polygon polygon) {
-        for (Line wall : polygon.getWalls()) {
-            Point intersection = MathUtils.intersect(line, wall);
-            if (intersection != null && MathUtils.inLine(intersection, line)) {
-                line.setY(intersection);
-            }
-        }
+    //interpolation is the fraction of a tick between the previous and the current player position
+    public void updateLines(double interpolation) {
+        updateLines(interpolation, LINE_COUNT);
     }
 
-    private void intersect(Line line, Circle circle) {
-        Point intersection = MathUtils.intersect(line, circle);
-        if (intersection != null && MathUtils.inLine(intersection, line)) {
-            line.setY(intersection);
-        }
+    //count columns across the view, count + 1 hits
+    public void updateLines(double interpolation, int count) {
+        hits = viewCaster.cast(getPlayer(), getPlayer().getPos(interpolation), count);
     }
 
-    private List<Line> getWalls(Player player) {
-        List<Line> walls = new ArrayList<>();
-        for (Figure figure : figures) {
-            if (figure instanceof Polygon polygon) {
-                walls.addAll(polygon.getWalls());
+    //regions are otherwise swapped in whenever the background loader is done, which differs from run to run
+    public void setSynchronousLoading(boolean synchronous) {
+        streamer.setSynchronous(synchronous);
+    }
+
+    public void setBotWorkers(int workers) {
+        botAI.setWorkers(workers);
+    }
+
+    public void setRayWorkers(int workers) {
+        setViewCaster(new RayCaster(this, workers));
+    }
+
+    //stops the threads of the view caster, the bot workers and the chunk loader
+    public void shutdown() {
+        viewCaster.shutdown();
+        botAI.setWorkers(1);
+        streamer.shutdown();
+    }
+
+    public void setViewCaster(ViewCaster viewCaster) {
+        this.viewCaster.shutdown();
+        this.viewCaster = viewCaster;
+    }
+
+    //casts a ray with a unit direction against the map and every player except the given one
+    public void castRay(Player player, double ox, double oy, double dx, double dy, RayHit hit) {
+        grid.intersect(ox, oy, dx, dy, hit);
+        castPlayers(player, ox, oy, dx, dy, hit);
+    }
+
+    //a ray for drawing: only the static map, and only what is potentially visible from the origin's cell; players
+    //are drawn over it as sprites
+    public void castViewRay(double ox, double oy, double dx, double dy, RayHit hit) {
+        grid.intersectVisible(ox, oy, dx, dy, hit);
+    }
+
+    private void castPlayers(Player player, double ox, double oy, double dx, double dy, RayHit hit) {
+        for (int i = 0; i < getParticipantCount(); i++) {
+            Player enemy = getParticipant(i);
+            if (enemy == player) {
+                continue;
             }
-            if (figure instanceof Circle circle) {
-                Line line = new Line(circle.center(), player.getPos());
-                if (MathUtils.length(line) < circle.radius()) {
-                    line = MathUtils.getLine(circle.center(), MathUtils.getAngle(line), circle.radius() + 10);
-                }
-                Point intersection = MathUtils.intersect(line, circle);
-                Line first = MathUtils.getLine(intersection, MathUtils.getAngle(line) + Math.PI / 2, 1);
-                Line second = MathUtils.getLine(intersection, MathUtils.getAngle(line) - Math.PI / 2, 1);
-                walls.add(new Line(first.getY(), second.getY()));
+            int wall = Geometry.nearestWall(ox, oy, dx, dy, enemy.getModelWalls(), 0, 4, hit);
+            if (wall >= 0) {
+                hit.set(hit.getDistance(), null, enemy, wall);
             }
         }
-        for (var enemy : getEnemies(player)) {
-            walls.addAll(enemy.getModel().getWalls());
-        }
-        return walls;
     }
 
     private Point getSpawn(Player player) {
-        double max = 0;
+        double max = -1;
         Point bestSpawn = null;
         for (Point spawn : spawns) {
             double cur = Integer.MAX_VALUE;
-            for (Player enemy : getEnemies(player)) {
-                cur = Math.min(cur, MathUtils.dist(spawn, enemy.getPos()));
+            for (int i = 0; i < getParticipantCount(); i++) {
+                Player enemy = getParticipant(i);
+                if (enemy != player && enemy.getPos() != null) {
+                    cur = Math.min(cur, MathUtils.dist(spawn, enemy.getPos()));
+                }
             }
             if (max < cur) {
                 max = cur;
@@ -276,65 +366,55 @@ public class Game {
         return bestSpawn;
     }
 
-    public Figure getFigure(Point point) {
-        for (Figure figure : figures) {
-            if (figure instanceof Polygon polygon && MathUtils.inPolygon(point, polygon)) {
-                return polygon;
-            }
-            if (figure instanceof Circle circle && MathUtils.inCircle(point, circle)) {
-                return circle;
-            }
-        }
-        return null;
-    }
-
-    public Player getBot(Point point) {
-        for (Player bot : bots) {
-            if (MathUtils.inPolygon(point, bot.getModel())) {
-                return bot;
-            }
-        }
-        return null;
-    }
-
+    //the figures of the resident chunks
     public List<Figure> getFigures() {
         return figures;
     }
 
-    public List<Line> getLines() {
-        return lines;
+    public RayHit[] getHits() {
+        return hits;
     }
 
+    //the first player to join, the one on screen in a local game
     public Player getPlayer() {
-        return player;
+        return players.isEmpty() ? null : players.get(0);
+    }
+
+    public List<Player> getPlayers() {
+        return players;
     }
 
     public List<Player> getBots() {
         return bots;
     }
 
-    public List<Player> getEnemies(Player player) {
-        if (player == this.player) {
-            return bots;
-        } else {
-            var enemies = new ArrayList<>(bots);
-            enemies.remove(player);
-            enemies.add(this.player);
-            return enemies;
-        }
+    //the players first, then the bots, so loops over everyone do not allocate
+    public int getParticipantCount() {
+        return players.size() + bots.size();
+    }
+
+    public Player getParticipant(int index) {
+        return index < players.size() ? players.get(index) : bots.get(index - players.size());
+    }
+
+    //the static geometry resident around the participants, replaced at the start of a tick when they move on
+    public ChunkGrid getGrid() {
+        return grid;
+    }
+
+    public ChunkSource getSource() {
+        return source;
     }
 
-    public boolean isVisible(Player player, Player target) {
-        Line line = new Line(player.getPos(), target.getPos());
-        intersect(player, line);
-        return MathUtils.inPolygon(line.getY(), target.getModel());
+    public NavGrid getNavGrid() {
+        return navGrid;
     }
 
-    public int getKills() {
-        return kills;
+    public Visibility getVisibility() {
+        return visibility;
     }
 
-    public int getDeaths() {
-        return deaths;
+    public int getTicks() {
+        return ticks;
     }
 }
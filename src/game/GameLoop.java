@@ -0,0 +1,58 @@
+package game;
+
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.DoubleConsumer;
+
+//runs the simulation at a fixed tick on its own thread, rendering between ticks with an interpolation factor
+public class GameLoop implements Runnable {
+    public static final int TICKS_PER_SECOND = 100;
+    public static final long TICK_NANOS = 1_000_000_000L / TICKS_PER_SECOND;
+    private static final long MAX_FRAME_NANOS = 250_000_000L;
+    private final Runnable tick;
+    private final DoubleConsumer render;
+    private final long frameNanos;
+    private volatile boolean running;
+    private Thread thread;
+
+    //render gets the fraction of a tick elapsed since the last simulated state, frames are at least frameNanos apart
+    public GameLoop(Runnable tick, DoubleConsumer render, long frameNanos) {
+        this.tick = tick;
+        this.render = render;
+        this.frameNanos = frameNanos;
+    }
+
+    public void start() {
+        running = true;
+        thread = new Thread(this, "game-loop");
+        thread.start();
+    }
+
+    public void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    @Override
+    public void run() {
+        long accumulator = 0;
+        long previous = System.nanoTime();
+        while (running) {
+            long now = System.nanoTime();
+            //a long stall would otherwise be paid back with a burst of ticks
+            accumulator += Math.min(now - previous, MAX_FRAME_NANOS);
+            previous = now;
+            while (accumulator >= TICK_NANOS) {
+                tick.run();
+                accumulator -= TICK_NANOS;
+            }
+            render.accept((double) accumulator / TICK_NANOS);
+
+            long next = now + frameNanos;
+            while (running && System.nanoTime() < next) {
+                LockSupport.parkNanos(next - System.nanoTime());
+            }
+        }
+    }
+}
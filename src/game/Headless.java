@@ -0,0 +1,76 @@
+package game;
+
+import game.view.Texture;
+import game.view.TextureManager;
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+
+//dedicated simulation without a display: -Dshooter.bots, -Dshooter.ticks, -Dshooter.rate (0 runs at full speed)
+//and -Dshooter.botWorkers
+public class Headless {
+    private static final long REPORT_NANOS = 1_000_000_000L;
+
+    public static void main(String[] args) {
+        int bots = Integer.getInteger("shooter.bots", Game.BOT_NUMBERS);
+        long totalTicks = Long.getLong("shooter.ticks", 10L * GameLoop.TICKS_PER_SECOND);
+        int rate = Integer.getInteger("shooter.rate", 0);
+
+        Texture front = TextureManager.getTexture("front.png", true);
+        Texture right = TextureManager.getTexture("right.png", true);
+        Texture back = TextureManager.getTexture("back.png", true);
+        Texture left = TextureManager.getTexture("left.png", true);
+        Game game = new Game(new Player(front, right, back, left), bots);
+        game.setBotWorkers(Integer.getInteger("shooter.botWorkers", Runtime.getRuntime().availableProcessors()));
+        System.out.printf("bots: %d, ticks: %d, rate: %s%n", bots, totalTicks, rate > 0 ? rate + "/s" : "full speed");
+
+        long[] latencies = new long[1024];
+        long[] all = new long[(int) Math.min(totalTicks, 1 << 24)];
+        int count = 0;
+        long start = System.nanoTime();
+        long reportStart = start;
+        long next = start;
+        for (long tick = 0; tick < totalTicks; tick++) {
+            if (rate > 0) {
+                next += 1_000_000_000L / rate;
+                while (System.nanoTime() < next) {
+                    LockSupport.parkNanos(next - System.nanoTime());
+                }
+            }
+            long tickStart = System.nanoTime();
+            game.tick();
+            long tickEnd = System.nanoTime();
+
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, 2 * count);
+            }
+            latencies[count++] = tickEnd - tickStart;
+            if (tick < all.length) {
+                all[(int) tick] = tickEnd - tickStart;
+            }
+            if (tickEnd - reportStart >= REPORT_NANOS) {
+                report("tick", latencies, count, count * 1e9 / (tickEnd - reportStart));
+                reportStart = tickEnd;
+                count = 0;
+            }
+        }
+        game.shutdown();
+        report("total", all, (int) Math.min(totalTicks, all.length), totalTicks * 1e9 / (System.nanoTime() - start));
+        System.out.printf("kills: %d, deaths: %d%n", game.getPlayer().getKills(), game.getPlayer().getDeaths());
+    }
+
+    static void report(String label, long[] latencies, int count, double ticksPerSecond) {
+        if (count == 0) {
+            return;
+        }
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        System.out.printf(
+            "%s: %.1f ticks/s, p50 %.1f us, p99 %.1f us, max %.1f us%n",
+            label,
+            ticksPerSecond,
+            sorted[count / 2] / 1e3,
+            sorted[Math.min(count - 1, (int) (count * 0.99))] / 1e3,
+            sorted[count - 1] / 1e3
+        );
+    }
+}
@@ -1,9 +1,7 @@
 package game;
 
-import game.figure.Line;
 import game.figure.Point;
 import game.figure.Polygon;
-import game.util.MathUtils;
 import game.view.Texture;
 import java.util.List;
 
@@ -11,13 +9,24 @@ public class Player {
     public static final double STEP_LENGTH = 1;
     public static final double VIEW_ANGLE = Math.PI / 2;
     public static final double PLAYER_WIDTH = 5;
+    private int id;
     private Point pos;
+    private Point previousPos;
     private double alpha;
     private int healthPoints;
+    private double speed = STEP_LENGTH;
+    private int kills;
+    private int deaths;
     private final Texture textureFront;
     private final Texture textureRight;
     private final Texture textureBack;
     private final Texture textureLeft;
+    //bumped whenever the position or the angle changes, derived geometry is cached against it
+    private long version;
+    //model walls packed as [x1, y1, x2, y2] in the same order as getModel()
+    private final double[] modelWalls = new double[16];
+    private Polygon model;
+    private long modelVersion = -1;
 
     public Player(Texture textureFront, Texture textureRight, Texture textureBack, Texture textureLeft) {
         this.textureFront = textureFront;
@@ -26,26 +35,71 @@ public class Player {
         this.textureLeft = textureLeft;
     }
 
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
     public Point getPos() {
         return pos;
     }
 
+    //position interpolated between the last two ticks, 0 is the previous tick and 1 the current one
+    public Point getPos(double interpolation) {
+        if (previousPos == null || interpolation >= 1) {
+            return pos;
+        }
+        return new Point(
+            previousPos.x() + (pos.x() - previousPos.x()) * interpolation,
+            previousPos.y() + (pos.y() - previousPos.y()) * interpolation
+        );
+    }
+
+    public void savePos() {
+        previousPos = pos;
+    }
+
     public void setPos(Point pos) {
         this.pos = pos;
+        update();
     }
 
+    //always in [0, 2 * PI)
     public double getAlpha() {
-        updateAlpha();
         return alpha;
     }
 
     public void setAlpha(double alpha) {
-        this.alpha = alpha;
-        updateAlpha();
+        this.alpha = (alpha % (2 * Math.PI) + (2 * Math.PI)) % (2 * Math.PI);
+        update();
+    }
+
+    //distance covered by one move, per tick
+    public double getSpeed() {
+        return speed;
+    }
+
+    public void setSpeed(double speed) {
+        this.speed = speed;
     }
 
-    private void updateAlpha() {
-        alpha = (alpha % (2 * Math.PI) + (2 * Math.PI)) % (2 * Math.PI);
+    public int getKills() {
+        return kills;
+    }
+
+    public void setKills(int kills) {
+        this.kills = kills;
+    }
+
+    public int getDeaths() {
+        return deaths;
+    }
+
+    public void setDeaths(int deaths) {
+        this.deaths = deaths;
     }
 
     public int getHealthPoints() {
@@ -56,14 +110,49 @@ public class Player {
         this.healthPoints = healthPoints;
     }
 
+    private void update() {
+        version++;
+        if (pos == null) {
+            return;
+        }
+        for (int i = 0; i < 4; i++) {
+            double corner = alpha - Math.PI / 4 + i * Math.PI / 2;
+            double x = pos.x() + Math.cos(corner) * PLAYER_WIDTH;
+            double y = pos.y() + Math.sin(corner) * PLAYER_WIDTH;
+            modelWalls[4 * i] = x;
+            modelWalls[4 * i + 1] = y;
+            modelWalls[(4 * i + 14) % 16] = x;
+            modelWalls[(4 * i + 15) % 16] = y;
+        }
+    }
+
+    public double[] getModelWalls() {
+        return modelWalls;
+    }
+
+    public Texture getModelTexture(int wall) {
+        return switch (wall) {
+            case 0 -> textureFront;
+            case 1 -> textureLeft;
+            case 2 -> textureBack;
+            default -> textureRight;
+        };
+    }
+
+    //built from the model walls on first use after a move or a turn
     public Polygon getModel() {
-        Line a = MathUtils.getLine(getPos(), getAlpha() - Math.PI / 4, PLAYER_WIDTH);
-        Line b = MathUtils.getLine(getPos(), getAlpha() + Math.PI / 4, PLAYER_WIDTH);
-        Line c = MathUtils.getLine(getPos(), getAlpha() + 3 * Math.PI / 4, PLAYER_WIDTH);
-        Line d = MathUtils.getLine(getPos(), getAlpha() - 3 * Math.PI / 4, PLAYER_WIDTH);
-        return new Polygon(
-            List.of(a.getY(), b.getY(), c.getY(), d.getY()),
-            List.of(textureFront, textureLeft, textureBack, textureRight)
-        );
+        if (modelVersion != version) {
+            model = new Polygon(
+                List.of(
+                    new Point(modelWalls[0], modelWalls[1]),
+                    new Point(modelWalls[4], modelWalls[5]),
+                    new Point(modelWalls[8], modelWalls[9]),
+                    new Point(modelWalls[12], modelWalls[13])
+                ),
+                List.of(textureFront, textureLeft, textureBack, textureRight)
+            );
+            modelVersion = version;
+        }
+        return model;
     }
 }
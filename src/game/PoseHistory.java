@@ -0,0 +1,72 @@
+package game;
+
+import game.util.Geometry;
+import game.util.RayHit;
+import java.util.Arrays;
+
+//the model walls of every participant for the last CAPACITY ticks, kept in arrays that are reused slot by slot,
+//so a shot that arrives late can be tested against where its targets were without moving them back and forth
+public class PoseHistory {
+    public static final int CAPACITY = 64;
+    //four walls of four coordinates per model
+    private static final int WALLS = 4;
+    private final int[] ticks = new int[CAPACITY];
+    private final int[] counts = new int[CAPACITY];
+    private Player[][] participants = new Player[CAPACITY][0];
+    private int[][] deaths = new int[CAPACITY][0];
+    private double[][] walls = new double[CAPACITY][0];
+
+    public PoseHistory() {
+        Arrays.fill(ticks, -1);
+    }
+
+    //grows only when more participants are in the game than ever before
+    public void record(Game game, int tick) {
+        int slot = Math.floorMod(tick, CAPACITY);
+        int count = game.getParticipantCount();
+        if (participants[slot].length < count) {
+            participants[slot] = new Player[count];
+            deaths[slot] = new int[count];
+            walls[slot] = new double[4 * WALLS * count];
+        }
+        for (int i = 0; i < count; i++) {
+            Player participant = game.getParticipant(i);
+            participants[slot][i] = participant;
+            deaths[slot][i] = participant.getDeaths();
+            System.arraycopy(participant.getModelWalls(), 0, walls[slot], 4 * WALLS * i, 4 * WALLS);
+        }
+        Arrays.fill(participants[slot], count, participants[slot].length, null);
+        ticks[slot] = tick;
+        counts[slot] = count;
+    }
+
+    public boolean contains(int tick) {
+        return tick >= 0 && ticks[Math.floorMod(tick, CAPACITY)] == tick;
+    }
+
+    //a participant that left is never hit in the past either
+    public void forget(Player player) {
+        for (int slot = 0; slot < CAPACITY; slot++) {
+            for (int i = 0; i < counts[slot]; i++) {
+                if (participants[slot][i] == player) {
+                    participants[slot][i] = null;
+                }
+            }
+        }
+    }
+
+    //like Game.castRay for the participants only, a target that died since the tick is skipped
+    public void castRay(int tick, Player player, double ox, double oy, double dx, double dy, RayHit hit) {
+        int slot = Math.floorMod(tick, CAPACITY);
+        for (int i = 0; i < counts[slot]; i++) {
+            Player enemy = participants[slot][i];
+            if (enemy == null || enemy == player || enemy.getDeaths() != deaths[slot][i]) {
+                continue;
+            }
+            int wall = Geometry.nearestWall(ox, oy, dx, dy, walls[slot], WALLS * i, WALLS * (i + 1), hit);
+            if (wall >= 0) {
+                hit.set(hit.getDistance(), null, enemy, wall - WALLS * i);
+            }
+        }
+    }
+}
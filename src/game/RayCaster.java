@@ -0,0 +1,116 @@
+package game;
+
+import game.figure.Circle;
+import game.figure.Point;
+import game.figure.Polygon;
+import game.util.RayHit;
+import game.view.Texture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import static game.Player.VIEW_ANGLE;
+
+//casts one ray per column against the static map, splitting the field of view into strips when more than one worker
+//is configured. while the camera holds still the last hits are kept
+public class RayCaster implements ViewCaster {
+    private static final int STRIP_SIZE = 64;
+    private final Game game;
+    private final ForkJoinPool pool;
+    private final ViewCache cache;
+    private RayHit[] hits = new RayHit[0];
+
+    public RayCaster(Game game, int workers) {
+        this.game = game;
+        pool = workers > 1 ? new ForkJoinPool(workers) : null;
+        cache = new ViewCache(game);
+    }
+
+    @Override
+    public RayHit[] cast(Player player, Point pos, int count) {
+        if (hits.length != count + 1) {
+            hits = new RayHit[count + 1];
+            for (int i = 0; i < hits.length; i++) {
+                hits[i] = new RayHit();
+            }
+        }
+        if (!cache.update(player, pos, count)) {
+            return hits;
+        }
+        double delta = VIEW_ANGLE / count;
+        double end = player.getAlpha() + VIEW_ANGLE / 2;
+        if (pool == null) {
+            cast(pos, end, delta, 0, hits.length);
+        } else {
+            pool.invoke(new Strip(pos, end, delta, 0, hits.length));
+        }
+        return hits;
+    }
+
+    private void cast(Point pos, double end, double delta, int from, int to) {
+        for (int i = from; i < to; i++) {
+            double dx = Math.cos(end - i * delta), dy = Math.sin(end - i * delta);
+            RayHit hit = hits[i];
+            hit.reset(game.LINE_LENGTH);
+            game.castViewRay(pos.x(), pos.y(), dx, dy, hit);
+            resolveTexture(hit, pos.x() + dx * hit.getDistance(), pos.y() + dy * hit.getDistance());
+        }
+    }
+
+    //texture and texture column of the hit at (x, y)
+    static void resolveTexture(RayHit hit, double x, double y) {
+        if (hit.getFigure() instanceof Polygon polygon) {
+            Point start = polygon.points().get(hit.getWall());
+            Point end = polygon.points().get((hit.getWall() + 1) % polygon.points().size());
+            Texture texture = polygon.textures().get(hit.getWall());
+            double along = Math.hypot(x - start.x(), y - start.y());
+            double length = Math.hypot(end.x() - start.x(), end.y() - start.y());
+            hit.setTexture(texture, texture.isStretched() ? along / length : along / Texture.WORLD_SIZE);
+        } else if (hit.getFigure() instanceof Circle circle) {
+            Texture texture = circle.texture();
+            double angle = Math.atan2(y - circle.center().y(), x - circle.center().x());
+            if (angle < -Math.PI / 2) {
+                angle += 2 * Math.PI;
+            }
+            angle += Math.PI;
+            hit.setTexture(texture, texture.isStretched() ?
+                angle / (2 * Math.PI) :
+                angle * circle.radius() / Texture.WORLD_SIZE);
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private class Strip extends RecursiveAction {
+        private final Point pos;
+        private final double end;
+        private final double delta;
+        private final int from;
+        private final int to;
+
+        private Strip(Point pos, double end, double delta, int from, int to) {
+            this.pos = pos;
+            this.end = end;
+            this.delta = delta;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= STRIP_SIZE) {
+                cast(pos, end, delta, from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(
+                new Strip(pos, end, delta, from, middle),
+                new Strip(pos, end, delta, middle, to)
+            );
+        }
+    }
+}
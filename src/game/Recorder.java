@@ -0,0 +1,117 @@
+package game;
+
+import game.map.ChunkSource;
+import game.map.GameMap;
+import game.map.MapSource;
+import game.map.ProceduralChunks;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+//writes the world, the seed and the local player's input of every tick, so Replay can play the match again without a
+//display; the game has to load its chunks synchronously, see Game.setSynchronousLoading.
+//a tick is one byte of held keys, followed by the turn and the shots only when there are any.
+//the file ends with the state the game reached, which the replay has to arrive at too
+public class Recorder implements Closeable {
+    static final int MAGIC = 0x53485250;
+    static final int VERSION = 2;
+    static final int MAP_WORLD = 0;
+    static final int PROCEDURAL_WORLD = 1;
+    static final int FORWARD = 1;
+    static final int BACKWARD = 2;
+    static final int LEFT = 4;
+    static final int RIGHT = 8;
+    static final int TURN = 16;
+    static final int SHOTS = 32;
+    static final int END = 0xFF;
+    private final DataOutputStream out;
+    private boolean closed;
+
+    public Recorder(Path path, ChunkSource world, long seed, int botCount) throws IOException {
+        out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        if (world instanceof ProceduralChunks procedural) {
+            out.writeByte(PROCEDURAL_WORLD);
+            out.writeLong(procedural.getSeed());
+            out.writeDouble(procedural.getSize());
+        } else if (world instanceof MapSource map) {
+            out.writeByte(MAP_WORLD);
+            out.writeUTF(map.getMap().getPath().toString());
+        } else {
+            out.close();
+            throw new IllegalArgumentException("Cannot record a world from " + world.getClass().getSimpleName());
+        }
+        out.writeLong(seed);
+        out.writeInt(botCount);
+    }
+
+    //the world as written by the constructor, a map is loaded again from its path
+    static ChunkSource readWorld(DataInputStream in) throws IOException {
+        int type = in.readUnsignedByte();
+        if (type == PROCEDURAL_WORLD) {
+            return new ProceduralChunks(in.readLong(), in.readDouble());
+        }
+        if (type != MAP_WORLD) {
+            throw new IOException("Unknown world type " + type);
+        }
+        return new MapSource(GameMap.load(Path.of(in.readUTF())));
+    }
+
+    public void record(
+        boolean forward,
+        boolean backward,
+        boolean left,
+        boolean right,
+        double turn,
+        int shots,
+        int shotTick
+    ) throws IOException {
+        int keys = (forward ? FORWARD : 0) | (backward ? BACKWARD : 0) | (left ? LEFT : 0) | (right ? RIGHT : 0);
+        out.writeByte(keys | (turn != 0 ? TURN : 0) | (shots > 0 ? SHOTS : 0));
+        if (turn != 0) {
+            out.writeDouble(turn);
+        }
+        if (shots > 0) {
+            out.writeShort(shots);
+            out.writeInt(shotTick);
+        }
+    }
+
+    //call after the last recorded tick was applied
+    public void finish(Game game) throws IOException {
+        out.writeByte(END);
+        out.writeInt(game.getTicks());
+        out.writeLong(hash(game));
+        close();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        out.close();
+    }
+
+    //everything a replay has to reproduce exactly
+    static long hash(Game game) {
+        long hash = game.getTicks();
+        for (int i = 0; i < game.getParticipantCount(); i++) {
+            Player participant = game.getParticipant(i);
+            hash = 31 * hash + Double.doubleToLongBits(participant.getPos().x());
+            hash = 31 * hash + Double.doubleToLongBits(participant.getPos().y());
+            hash = 31 * hash + Double.doubleToLongBits(participant.getAlpha());
+            hash = 31 * hash + participant.getHealthPoints();
+            hash = 31 * hash + participant.getKills();
+            hash = 31 * hash + participant.getDeaths();
+        }
+        return hash;
+    }
+}
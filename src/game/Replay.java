@@ -0,0 +1,80 @@
+package game;
+
+import game.map.ChunkSource;
+import game.view.Texture;
+import game.view.TextureManager;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+//plays a file written with -Dshooter.record at full speed without a display and checks that it ends in the
+//recorded state: -Dshooter.replay and -Dshooter.botWorkers; exits with 1 when the state differs
+public class Replay {
+    public static void main(String[] args) throws IOException {
+        Path path = Path.of(System.getProperty("shooter.replay", "match.rec"));
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != Recorder.MAGIC || in.readInt() != Recorder.VERSION) {
+                throw new IOException(path + " is not a recording of this version");
+            }
+            ChunkSource world = Recorder.readWorld(in);
+            long seed = in.readLong();
+            int bots = in.readInt();
+
+            Texture front = TextureManager.getTexture("front.png", true);
+            Texture right = TextureManager.getTexture("right.png", true);
+            Texture back = TextureManager.getTexture("back.png", true);
+            Texture left = TextureManager.getTexture("left.png", true);
+            Player player = new Player(front, right, back, left);
+            Game game = new Game(world, bots, new Random(seed));
+            game.addPlayer(player);
+            game.setSynchronousLoading(true);
+            game.setBotWorkers(Integer.getInteger("shooter.botWorkers", Runtime.getRuntime().availableProcessors()));
+
+            long[] latencies = new long[1024];
+            int count = 0;
+            long start = System.nanoTime();
+            int flags;
+            while ((flags = in.readUnsignedByte()) != Recorder.END) {
+                double turn = (flags & Recorder.TURN) != 0 ? in.readDouble() : 0;
+                int shots = 0, shotTick = 0;
+                if ((flags & Recorder.SHOTS) != 0) {
+                    shots = in.readUnsignedShort();
+                    shotTick = in.readInt();
+                }
+                double move = Game.getMoveAngle(
+                    (flags & Recorder.FORWARD) != 0,
+                    (flags & Recorder.BACKWARD) != 0,
+                    (flags & Recorder.LEFT) != 0,
+                    (flags & Recorder.RIGHT) != 0
+                );
+
+                long tickStart = System.nanoTime();
+                game.tick();
+                game.applyInput(player, move, turn, shots, shotTick);
+                if (count == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, 2 * count);
+                }
+                latencies[count++] = System.nanoTime() - tickStart;
+            }
+            int ticks = in.readInt();
+            long hash = in.readLong();
+            game.shutdown();
+
+            Headless.report("replay", latencies, count, count * 1e9 / (System.nanoTime() - start));
+            System.out.printf("kills: %d, deaths: %d%n", player.getKills(), player.getDeaths());
+            if (game.getTicks() != ticks || Recorder.hash(game) != hash) {
+                System.out.printf(
+                    "final state differs from the recording after %d of %d ticks%n",
+                    game.getTicks(),
+                    ticks
+                );
+                System.exit(1);
+            }
+            System.out.println("final state matches the recording");
+        }
+    }
+}
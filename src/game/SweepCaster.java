@@ -0,0 +1,305 @@
+package game;
+
+import game.figure.Figure;
+import game.figure.Point;
+import game.util.ChunkGrid;
+import game.util.Geometry;
+import game.util.PvsGrid;
+import game.util.RayHit;
+import game.util.SpatialGrid;
+import java.util.Arrays;
+import static game.Player.VIEW_ANGLE;
+
+//builds the visibility polygon of the view in one angular sweep instead of casting a ray per column: the ends of
+//every wall, the silhouettes of every circle and the points where two figures cross are sorted by angle around the
+//eye, and between two such angles the same figure stays in front, as one figure can only pass another where they
+//cross. a column then only costs the distance to the figure known to be in front, so the cost follows the visible
+//edges rather than the horizontal resolution. only the static map is swept, so a frame in which the camera holds
+//still keeps the last hits
+public class SweepCaster implements ViewCaster {
+    //low bits of a sort key that hold the event instead of the angle
+    private static final int INDEX_BITS = 20;
+    //in columns, so that a span clipped to the edge of the view still covers the edge column
+    private static final double EPS = 1e-6;
+    private final Game game;
+    private final ViewCache cache;
+    private RayHit[] hits = new RayHit[0];
+    //column directions as [dx, dy]
+    private double[] directions = new double[0];
+    //items in range: walls as [x1, y1, x2, y2], circles as [x, y, r, 0]
+    private double[] shapes = new double[0];
+    private boolean[] round = new boolean[0];
+    private Figure[] figures = new Figure[0];
+    private int[] walls = new int[0];
+    private int itemCount;
+    //an event starts or ends the angle span of an item, item << 1 | 1 for an end, or is a crossing, -1
+    private long[] keys = new long[0];
+    private double[] eventAngles = new double[0];
+    private int[] eventItems = new int[0];
+    private int eventCount;
+    //items whose span covers the sweep angle, slots holds the place of each in active
+    private int[] active = new int[0];
+    private int[] slots = new int[0];
+    private int activeCount;
+    private double ox;
+    private double oy;
+    private double alpha;
+
+    public SweepCaster(Game game) {
+        this.game = game;
+        cache = new ViewCache(game);
+    }
+
+    @Override
+    public RayHit[] cast(Player player, Point pos, int count) {
+        if (hits.length != count + 1) {
+            hits = new RayHit[count + 1];
+            for (int i = 0; i < hits.length; i++) {
+                hits[i] = new RayHit();
+            }
+            directions = new double[2 * hits.length];
+        }
+        if (!cache.update(player, pos, count)) {
+            return hits;
+        }
+        ox = pos.x();
+        oy = pos.y();
+        alpha = player.getAlpha();
+        double delta = VIEW_ANGLE / count;
+        for (int i = 0; i < hits.length; i++) {
+            directions[2 * i] = Math.cos(alpha + VIEW_ANGLE / 2 - i * delta);
+            directions[2 * i + 1] = Math.sin(alpha + VIEW_ANGLE / 2 - i * delta);
+        }
+
+        itemCount = 0;
+        eventCount = 0;
+        addMap();
+        Arrays.sort(keys, 0, eventCount);
+
+        //the sweep goes from the left edge of the view, the last column, to the right edge, the first one;
+        //an item is in front of the columns from its start angle up to and including its end angle
+        activeCount = 0;
+        int column = count;
+        for (int i = 0; i < eventCount; i++) {
+            int event = (int) (keys[i] & (1 << INDEX_BITS) - 1);
+            int item = eventItems[event] >> 1;
+            boolean ends = item >= 0 && (eventItems[event] & 1) != 0;
+            double columns = (VIEW_ANGLE / 2 - eventAngles[event]) / delta;
+            column = fill(column, ends ? (int) Math.ceil(columns - EPS) : (int) Math.floor(columns + EPS) + 1);
+            if (item < 0) {
+                continue;
+            }
+            if (ends) {
+                int last = active[--activeCount];
+                active[slots[item]] = last;
+                slots[last] = slots[item];
+            } else {
+                slots[item] = activeCount;
+                active[activeCount++] = item;
+            }
+        }
+        fill(column, 0);
+        return hits;
+    }
+
+    //the map in range of the eye, only what its PVS cell can see when there is one
+    private void addMap() {
+        ChunkGrid grid = game.getGrid();
+        SpatialGrid single = grid.getSingle();
+        PvsGrid pvs = single == null ? null : single.getPvs();
+        int cell = pvs == null ? -1 : pvs.cell(ox, oy);
+        if (cell >= 0) {
+            for (int item = pvs.nextVisible(cell, 0); item >= 0; item = pvs.nextVisible(cell, item + 1)) {
+                addItem(single, item);
+            }
+            addCrossings(single);
+            return;
+        }
+        double range = game.LINE_LENGTH;
+        for (int row = grid.row(oy - range); row <= grid.row(oy + range); row++) {
+            for (int column = grid.column(ox - range); column <= grid.column(ox + range); column++) {
+                SpatialGrid chunk = grid.getChunk(column, row);
+                if (chunk != null) {
+                    for (int item = 0; item < chunk.getWallCount() + chunk.getCircleCount(); item++) {
+                        addItem(chunk, item);
+                    }
+                    addCrossings(chunk);
+                }
+            }
+        }
+    }
+
+    //also those out of range, a figure reaching into range may pass another there; figures stay inside their chunk,
+    //so no two chunks' figures cross
+    private void addCrossings(SpatialGrid grid) {
+        double[] crossings = grid.getCrossings();
+        for (int i = 0; i < crossings.length; i += 2) {
+            double angle = angle(crossings[i], crossings[i + 1]);
+            if (Math.abs(angle) <= VIEW_ANGLE / 2) {
+                addEvent(-1, angle);
+            }
+        }
+    }
+
+    private void addItem(SpatialGrid grid, int item) {
+        if (item < grid.getWallCount()) {
+            double[] gridWalls = grid.getWalls();
+            int k = 4 * item;
+            double x1 = gridWalls[k], y1 = gridWalls[k + 1], x2 = gridWalls[k + 2], y2 = gridWalls[k + 3];
+            if (Geometry.segmentDistance(ox, oy, x1, y1, x2, y2) < game.LINE_LENGTH) {
+                addWall(x1, y1, x2, y2, grid.getPolygon(item), grid.getWallSide(item));
+            }
+        } else {
+            double[] circles = grid.getCircles();
+            int k = 3 * (item - grid.getWallCount());
+            double distance = Math.hypot(circles[k] - ox, circles[k + 1] - oy);
+            if (distance - circles[k + 2] >= game.LINE_LENGTH) {
+                return;
+            }
+            Figure circle = grid.getCircle(item - grid.getWallCount());
+            int added = add(circles[k], circles[k + 1], circles[k + 2], 0, circle, -1);
+            round[added] = true;
+            if (distance <= circles[k + 2]) {
+                addSpan(added, -Math.PI, 2 * Math.PI);
+            } else {
+                double spread = Math.asin(circles[k + 2] / distance);
+                addSpan(added, angle(circles[k], circles[k + 1]) - spread, 2 * spread);
+            }
+        }
+    }
+
+    private void addWall(double x1, double y1, double x2, double y2, Figure figure, int wall) {
+        int added = add(x1, y1, x2, y2, figure, wall);
+        double first = angle(x1, y1), turn = normalize(angle(x2, y2) - first);
+        if (turn >= 0) {
+            addSpan(added, first, turn);
+        } else {
+            addSpan(added, first + turn, -turn);
+        }
+    }
+
+    private int add(double a, double b, double c, double d, Figure figure, int wall) {
+        if (itemCount == figures.length) {
+            int capacity = Math.max(64, 2 * itemCount);
+            shapes = Arrays.copyOf(shapes, 4 * capacity);
+            round = Arrays.copyOf(round, capacity);
+            figures = Arrays.copyOf(figures, capacity);
+            walls = Arrays.copyOf(walls, capacity);
+            active = Arrays.copyOf(active, capacity);
+            slots = Arrays.copyOf(slots, capacity);
+        }
+        shapes[4 * itemCount] = a;
+        shapes[4 * itemCount + 1] = b;
+        shapes[4 * itemCount + 2] = c;
+        shapes[4 * itemCount + 3] = d;
+        round[itemCount] = false;
+        figures[itemCount] = figure;
+        walls[itemCount] = wall;
+        return itemCount++;
+    }
+
+    //angle of a point around the eye relative to the view direction, in [-pi, pi)
+    private double angle(double x, double y) {
+        return normalize(Math.atan2(y - oy, x - ox) - alpha);
+    }
+
+    private static double normalize(double angle) {
+        return angle - 2 * Math.PI * Math.floor((angle + Math.PI) / (2 * Math.PI));
+    }
+
+    //the part of the span [from, from + length] inside the view, if any
+    private void addSpan(int item, double from, double length) {
+        for (int turn = -1; turn <= 1; turn++) {
+            double start = Math.max(from + 2 * Math.PI * turn, -VIEW_ANGLE / 2);
+            double end = Math.min(from + length + 2 * Math.PI * turn, VIEW_ANGLE / 2);
+            if (start <= end) {
+                addEvent(item << 1, start);
+                addEvent(item << 1 | 1, end);
+                return;
+            }
+        }
+    }
+
+    //the angle goes to the high bits of the key so that sorting the keys sorts the events, the few low bits it
+    //loses are far below a column
+    private void addEvent(int item, double angle) {
+        if (eventCount == keys.length) {
+            int capacity = Math.max(128, 2 * eventCount);
+            keys = Arrays.copyOf(keys, capacity);
+            eventAngles = Arrays.copyOf(eventAngles, capacity);
+            eventItems = Arrays.copyOf(eventItems, capacity);
+        }
+        eventAngles[eventCount] = angle;
+        eventItems[eventCount] = item;
+        keys[eventCount] = Double.doubleToRawLongBits(angle + 2 * Math.PI) & -(1L << INDEX_BITS) | eventCount;
+        eventCount++;
+    }
+
+    //columns from down to to, with the active items as they are; returns the next column to fill
+    private int fill(int from, int to) {
+        to = Math.max(to, 0);
+        if (from < to) {
+            return from;
+        }
+        fill(from, to, front(from), front(to));
+        return to - 1;
+    }
+
+    //no figure passes another inside the span, so when both ends have the same front it is in front all along;
+    //otherwise only rounding at an event put a column on the wrong side of it, and bisecting finds where
+    private void fill(int from, int to, int frontFrom, int frontTo) {
+        if (frontFrom == frontTo) {
+            for (int column = from; column >= to; column--) {
+                setHit(column, frontFrom);
+            }
+        } else if (from - to <= 1) {
+            setHit(from, frontFrom);
+            setHit(to, frontTo);
+        } else {
+            int middle = (from + to) >>> 1;
+            int frontMiddle = front(middle);
+            fill(from, middle, frontFrom, frontMiddle);
+            fill(middle, to, frontMiddle, frontTo);
+        }
+    }
+
+    //the active item closest along the column, -1 when none is hit
+    private int front(int column) {
+        double dx = directions[2 * column], dy = directions[2 * column + 1];
+        int front = -1;
+        double closest = Geometry.MISS;
+        for (int i = 0; i < activeCount; i++) {
+            double t = distance(active[i], dx, dy);
+            if (t < closest) {
+                closest = t;
+                front = active[i];
+            }
+        }
+        return front;
+    }
+
+    private double distance(int item, double dx, double dy) {
+        int k = 4 * item;
+        if (round[item]) {
+            return Geometry.rayCircle(ox, oy, dx, dy, shapes[k], shapes[k + 1], shapes[k + 2]);
+        }
+        return Geometry.raySegment(ox, oy, dx, dy, shapes[k], shapes[k + 1], shapes[k + 2], shapes[k + 3]);
+    }
+
+    private void setHit(int column, int item) {
+        double dx = directions[2 * column], dy = directions[2 * column + 1];
+        RayHit hit = hits[column];
+        hit.reset(game.LINE_LENGTH);
+        if (item >= 0) {
+            double t = distance(item, dx, dy);
+            if (t < game.LINE_LENGTH) {
+                hit.set(t, figures[item], null, walls[item]);
+            }
+        }
+        RayCaster.resolveTexture(hit, ox + dx * hit.getDistance(), oy + dy * hit.getDistance());
+    }
+
+    @Override
+    public void shutdown() {
+    }
+}
@@ -0,0 +1,31 @@
+package game;
+
+import game.figure.Point;
+import game.util.ChunkGrid;
+
+//what the hits of a ViewCaster were last cast for. only the static map is cast, players are drawn over it as sprites,
+//so as long as the camera holds still and the resident map stays the same the last hits are still right
+class ViewCache {
+    private final Game game;
+    private double x = Double.NaN;
+    private double y;
+    private double alpha;
+    private int count = -1;
+    private ChunkGrid grid;
+
+    ViewCache(Game game) {
+        this.game = game;
+    }
+
+    //true when the hits have to be cast again; remembers the new state
+    boolean update(Player player, Point pos, int count) {
+        boolean changed = pos.x() != x || pos.y() != y || player.getAlpha() != alpha || count != this.count ||
+            game.getGrid() != grid;
+        x = pos.x();
+        y = pos.y();
+        alpha = player.getAlpha();
+        this.count = count;
+        grid = game.getGrid();
+        return changed;
+    }
+}
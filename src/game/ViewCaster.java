@@ -0,0 +1,12 @@
+package game;
+
+import game.figure.Point;
+import game.util.RayHit;
+
+//what each screen column sees, from the right edge of the view to the left
+public interface ViewCaster {
+    //count + 1 hit records, reused by the next call
+    RayHit[] cast(Player player, Point pos, int count);
+
+    void shutdown();
+}
@@ -0,0 +1,74 @@
+package game;
+
+import game.figure.Point;
+import game.util.RayHit;
+import java.util.Arrays;
+
+//line of sight between every two participants against the static map, refreshed once per tick;
+//only pairs with an endpoint that moved since the last refresh are cast again
+public class Visibility {
+    private final Game game;
+    private final RayHit hit = new RayHit();
+    private int count;
+    private boolean[] visible = new boolean[0];
+    private boolean[] moved = new boolean[0];
+    //where every participant was at the last refresh as [x, y], NaN when unknown
+    private double[] positions = new double[0];
+
+    public Visibility(Game game) {
+        this.game = game;
+    }
+
+    //the map changed, every pair is cast again on the next update
+    public void invalidate() {
+        Arrays.fill(positions, Double.NaN);
+    }
+
+    public void update() {
+        int participants = game.getParticipantCount();
+        if (participants != count) {
+            count = participants;
+            visible = new boolean[count * count];
+            moved = new boolean[count];
+            positions = new double[2 * count];
+            Arrays.fill(positions, Double.NaN);
+        }
+        //by value, a move blocked by a wall and every received snapshot still bring a new Point
+        for (int i = 0; i < count; i++) {
+            Point pos = game.getParticipant(i).getPos();
+            moved[i] = pos.x() != positions[2 * i] || pos.y() != positions[2 * i + 1];
+            positions[2 * i] = pos.x();
+            positions[2 * i + 1] = pos.y();
+        }
+        for (int i = 0; i < count; i++) {
+            for (int j = i + 1; j < count; j++) {
+                if (moved[i] || moved[j]) {
+                    boolean clear = isClear(
+                        positions[2 * i],
+                        positions[2 * i + 1],
+                        positions[2 * j],
+                        positions[2 * j + 1]
+                    );
+                    visible[i * count + j] = clear;
+                    visible[j * count + i] = clear;
+                }
+            }
+        }
+    }
+
+    private boolean isClear(double fromX, double fromY, double toX, double toY) {
+        double dx = toX - fromX, dy = toY - fromY;
+        double distance = Math.hypot(dx, dy);
+        if (distance == 0) {
+            return true;
+        }
+        hit.reset(distance);
+        game.getGrid().intersect(fromX, fromY, dx / distance, dy / distance, hit);
+        return !hit.isHit();
+    }
+
+    //participant indices as in Game.getParticipant, as of the start of the current tick
+    public boolean isVisible(int from, int to) {
+        return from == to || visible[from * count + to];
+    }
+}
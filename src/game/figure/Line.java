@@ -1,8 +1,8 @@
 package game.figure;
 
 public class Line {
-    private Point x;
-    private Point y;
+    private final Point x;
+    private final Point y;
 
     public Line(Point x, Point y) {
         this.x = x;
@@ -16,8 +16,4 @@ public class Line {
     public Point getY() {
         return y;
     }
-
-    public void setY(Point y) {
-        this.y = y;
-    }
 }
@@ -1,45 +1,52 @@
 package game.figure;
 
-import game.util.MathUtils;
 import game.view.Texture;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 
-public record Polygon(List<Point> points, List<Texture> textures) implements Figure {
-    public Polygon(List<Point> points, Texture texture) {
-        this(points, new ArrayList<>());
-        for (int i = 0; i < points.size(); i++) {
-            textures.add(texture);
-        }
-    }
+//immutable, so the walls are built once
+public final class Polygon implements Figure {
+    private final List<Point> points;
+    private final List<Texture> textures;
+    private final List<Line> walls;
 
-    public List<Line> getWalls() {
+    public Polygon(List<Point> points, List<Texture> textures) {
+        this.points = List.copyOf(points);
+        this.textures = Collections.unmodifiableList(new ArrayList<>(textures));
         List<Line> walls = new ArrayList<>();
         for (int i = 0; i < points.size(); i++) {
             Point first = points.get(i);
             Point second = points.get((i + 1) % points.size());
             walls.add(new Line(first, second));
         }
+        this.walls = Collections.unmodifiableList(walls);
+    }
+
+    public Polygon(List<Point> points, Texture texture) {
+        this(points, Collections.nCopies(points.size(), texture));
+    }
+
+    public List<Point> points() {
+        return points;
+    }
+
+    public List<Texture> textures() {
+        return textures;
+    }
+
+    public List<Line> getWalls() {
         return walls;
     }
 
-    public Texture getTexture(Point point) {
-        var walls = getWalls();
-        for (int i = 0; i < points.size(); i++) {
-            if (MathUtils.inLine(point, walls.get(i))) {
-                return textures.get(i);
-            }
-        }
-        return null;
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Polygon polygon && points.equals(polygon.points) && textures.equals(polygon.textures);
     }
 
-    public Line getWall(Point point) {
-        var walls = getWalls();
-        for (Line wall : walls) {
-            if (MathUtils.inLine(point, wall)) {
-                return wall;
-            }
-        }
-        return null;
+    @Override
+    public int hashCode() {
+        return Objects.hash(points, textures);
     }
 }
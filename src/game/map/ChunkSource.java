@@ -0,0 +1,29 @@
+package game.map;
+
+import game.figure.Point;
+import game.util.SpatialGrid;
+import java.util.List;
+
+//where the static geometry of a world comes from, one square chunk at a time
+public interface ChunkSource {
+    //side of the world, which is [0, size) squared
+    double getSize();
+
+    double getChunkSize();
+
+    List<Point> getSpawns();
+
+    //the index of everything overlapping the chunk, null when there is nothing; called on the loader thread
+    SpatialGrid load(int column, int row);
+
+    //-Dshooter.world=procedural with -Dshooter.worldSize and -Dshooter.worldSeed, otherwise the map of -Dshooter.map
+    static ChunkSource getDefault() {
+        if ("procedural".equals(System.getProperty("shooter.world"))) {
+            return new ProceduralChunks(
+                Long.getLong("shooter.worldSeed", 1),
+                Double.parseDouble(System.getProperty("shooter.worldSize", "50000"))
+            );
+        }
+        return new MapSource(GameMap.getDefault());
+    }
+}
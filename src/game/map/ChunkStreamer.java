@@ -0,0 +1,186 @@
+package game.map;
+
+import game.figure.Figure;
+import game.util.ChunkGrid;
+import game.util.NavGrid;
+import game.util.SpatialGrid;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+//keeps the chunks within range of every participant resident: when someone enters another chunk, the new set is
+//loaded and indexed on a background thread and handed over by poll() at the start of a tick. chunks that fell out
+//of range wait in a small LRU cache, so memory depends on the participants and the range, never on the world size
+public class ChunkStreamer {
+    private static final int CACHED_CHUNKS = 256;
+    private static final SpatialGrid EMPTY = new SpatialGrid(List.of());
+    private final ChunkSource source;
+    private final double chunkSize;
+    private final double range;
+    private final double radius;
+    private final int worldChunks;
+    private final ExecutorService loader;
+    private final Map<Long, SpatialGrid> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, SpatialGrid> eldest) {
+            return size() > CACHED_CHUNKS;
+        }
+    };
+    private final AtomicReference<Region> ready = new AtomicReference<>();
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+    //chunk of every participant as of the last request
+    private int[] columns = new int[0];
+    private int[] rows = new int[0];
+    private int count = -1;
+    private boolean dirty;
+    private boolean synchronous;
+    private Future<?> pending;
+    //kept while the first participant stays in its chunk, so the bots' flow fields survive others moving on
+    private NavGrid navGrid;
+    private long navKey;
+
+    //range is how far from a participant the geometry has to be resident, radius is the one walkability is built for
+    public ChunkStreamer(ChunkSource source, double range, double radius) {
+        this.source = source;
+        this.range = range;
+        this.radius = radius;
+        chunkSize = source.getChunkSize();
+        worldChunks = (int) Math.ceil(source.getSize() / chunkSize);
+        loader = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "chunk-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    //positions packed as [x, y]; builds the region on the calling thread, for a world nobody has seen yet
+    public Region load(double[] positions, int count) {
+        request(positions, count, false);
+        dirty = false;
+        return build(Arrays.copyOf(columns, count), Arrays.copyOf(rows, count));
+    }
+
+    //builds on the calling thread, so a region is swapped in at the tick its chunks were entered; set before the first
+    //request when the same input has to play out the same way
+    public void setSynchronous(boolean synchronous) {
+        this.synchronous = synchronous;
+    }
+
+    //called every tick, does not allocate unless someone entered another chunk
+    public void request(double[] positions, int count) {
+        request(positions, count, true);
+    }
+
+    private void request(double[] positions, int count, boolean submit) {
+        if (columns.length < count) {
+            columns = Arrays.copyOf(columns, count);
+            rows = Arrays.copyOf(rows, count);
+        }
+        boolean changed = count != this.count;
+        for (int i = 0; i < count; i++) {
+            int column = (int) Math.floor(positions[2 * i] / chunkSize);
+            int row = (int) Math.floor(positions[2 * i + 1] / chunkSize);
+            if (column != columns[i] || row != rows[i]) {
+                columns[i] = column;
+                rows[i] = row;
+                changed = true;
+            }
+        }
+        this.count = count;
+        dirty |= changed;
+        if (submit && dirty && synchronous) {
+            dirty = false;
+            ready.set(build(Arrays.copyOf(columns, count), Arrays.copyOf(rows, count)));
+        } else if (submit && dirty && (pending == null || pending.isDone())) {
+            dirty = false;
+            int[] buildColumns = Arrays.copyOf(columns, count), buildRows = Arrays.copyOf(rows, count);
+            pending = loader.submit(() -> {
+                try {
+                    ready.set(build(buildColumns, buildRows));
+                } catch (RuntimeException e) {
+                    failure.set(e);
+                }
+            });
+        }
+    }
+
+    //the newest region built since the last call, or null; rethrows a failed build, which the next request retries
+    public Region poll() {
+        RuntimeException e = failure.getAndSet(null);
+        if (e != null) {
+            dirty = true;
+            throw new IllegalStateException("Error while loading chunks", e);
+        }
+        return ready.getAndSet(null);
+    }
+
+    public void shutdown() {
+        loader.shutdown();
+    }
+
+    private synchronized Region build(int[] columns, int[] rows) {
+        int reach = (int) Math.ceil(range / chunkSize);
+        Set<Long> keys = new LinkedHashSet<>();
+        for (int i = 0; i < columns.length; i++) {
+            for (int row = rows[i] - reach; row <= rows[i] + reach; row++) {
+                for (int column = columns[i] - reach; column <= columns[i] + reach; column++) {
+                    double gapX = Math.max(0, Math.abs(column - columns[i]) - 1) * chunkSize;
+                    double gapY = Math.max(0, Math.abs(row - rows[i]) - 1) * chunkSize;
+                    if (column >= 0 && column < worldChunks && row >= 0 && row < worldChunks &&
+                        gapX * gapX + gapY * gapY <= range * range) {
+                        keys.add(ChunkGrid.key(column, row));
+                    }
+                }
+            }
+        }
+
+        long[] chunkKeys = new long[keys.size()];
+        SpatialGrid[] grids = new SpatialGrid[keys.size()];
+        Set<Figure> figures = new LinkedHashSet<>();
+        int count = 0;
+        for (long key : keys) {
+            SpatialGrid grid = cache.get(key);
+            if (grid == null) {
+                grid = source.load((int) (key >> 32), (int) key);
+                grid = grid == null ? EMPTY : grid;
+                cache.put(key, grid);
+            }
+            if (grid == EMPTY) {
+                continue;
+            }
+            chunkKeys[count] = key;
+            grids[count++] = grid;
+            for (int wall = 0; wall < grid.getWallCount(); wall++) {
+                figures.add(grid.getPolygon(wall));
+            }
+            for (int circle = 0; circle < grid.getCircleCount(); circle++) {
+                figures.add(grid.getCircle(circle));
+            }
+        }
+        ChunkGrid grid = new ChunkGrid(chunkSize, chunkKeys, grids, count);
+
+        //bots path-find only within about half the view distance of the first participant, a raster over everyone
+        //would grow with the distance between players and every flow field with it
+        long navKey = columns.length > 0 ? ChunkGrid.key(columns[0], rows[0]) : Long.MIN_VALUE;
+        if (navGrid == null || navKey != this.navKey) {
+            int navReach = (int) Math.ceil((range - chunkSize) / 2 / chunkSize);
+            double minX = 0, minY = 0, maxX = 0, maxY = 0;
+            if (columns.length > 0) {
+                minX = Math.max(0, (columns[0] - navReach) * chunkSize);
+                minY = Math.max(0, (rows[0] - navReach) * chunkSize);
+                maxX = Math.min(source.getSize(), (columns[0] + navReach + 1) * chunkSize);
+                maxY = Math.min(source.getSize(), (rows[0] + navReach + 1) * chunkSize);
+            }
+            navGrid = new NavGrid(grid, minX, minY, Math.max(0, maxX - minX), Math.max(0, maxY - minY), radius);
+            this.navKey = navKey;
+        }
+        return new Region(grid, navGrid, List.copyOf(figures));
+    }
+}
@@ -0,0 +1,325 @@
+package game.map;
+
+import game.figure.Circle;
+import game.figure.Figure;
+import game.figure.Point;
+import game.figure.Polygon;
+import game.util.PvsGrid;
+import game.util.SpatialGrid;
+import game.view.Texture;
+import game.view.TextureManager;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//static geometry, spawns and the spatial index of a map; immutable, so games can share one.
+//maps are written as text (see maps/arena.map) and compiled by MapCompiler into a binary file with the walls and
+//circles already flattened and the grid already built, which is memory-mapped and copied out in bulk:
+//header, texture names, polygon wall counts, wall textures, walls [x1, y1, x2, y2], circles [x, y, r],
+//circle textures, spawns [x, y], the grid bounds and its cells as offsets into one array of item ids, then the
+//potentially visible set of every cell as bits over the item ids. the set is only worked out when compiling, a text
+//map loaded as it is goes without one and its rays test the whole grid
+public class GameMap {
+    private static final int MAGIC = 0x534D4150;
+    private static final int VERSION = 3;
+    private static GameMap defaultMap;
+    private final Path path;
+    private final double size;
+    private final List<Figure> figures;
+    private final List<Point> spawns;
+    private final SpatialGrid grid;
+
+    private GameMap(Path path, double size, List<Figure> figures, List<Point> spawns, SpatialGrid grid) {
+        this.path = path;
+        this.size = size;
+        this.figures = Collections.unmodifiableList(figures);
+        this.spawns = Collections.unmodifiableList(spawns);
+        this.grid = grid;
+    }
+
+    //-Dshooter.map, loaded once
+    public static synchronized GameMap getDefault() {
+        if (defaultMap == null) {
+            try {
+                defaultMap = load(Path.of(System.getProperty("shooter.map", "maps/arena.bin")));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return defaultMap;
+    }
+
+    //a .map file is parsed and indexed on the spot, anything else is read as a compiled map
+    public static GameMap load(Path path) throws IOException {
+        return path.toString().endsWith(".map") ? parse(path) : read(path);
+    }
+
+    public static GameMap parse(Path path) throws IOException {
+        double size = 0;
+        Map<String, Texture> textures = new HashMap<>();
+        List<Figure> figures = new ArrayList<>();
+        List<Point> spawns = new ArrayList<>();
+        List<String> lines = Files.readAllLines(path);
+        for (int number = 1; number <= lines.size(); number++) {
+            String line = lines.get(number - 1).strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] words = line.split("\\s+");
+            try {
+                switch (words[0]) {
+                    case "size" -> size = Double.parseDouble(words[1]);
+                    case "texture" -> textures.put(words[1], TextureManager.getTexture(words[2]));
+                    case "polygon" -> {
+                        if (words.length < 8 || words.length % 2 != 0) {
+                            throw new IllegalArgumentException("a polygon needs a texture and at least three points");
+                        }
+                        List<Point> points = new ArrayList<>();
+                        for (int i = 2; i < words.length; i += 2) {
+                            points.add(new Point(Double.parseDouble(words[i]), Double.parseDouble(words[i + 1])));
+                        }
+                        figures.add(new Polygon(points, texture(textures, words[1])));
+                    }
+                    case "circle" -> figures.add(new Circle(
+                        new Point(Double.parseDouble(words[2]), Double.parseDouble(words[3])),
+                        Double.parseDouble(words[4]),
+                        texture(textures, words[1])
+                    ));
+                    case "spawn" -> spawns.add(new Point(Double.parseDouble(words[1]), Double.parseDouble(words[2])));
+                    default -> throw new IllegalArgumentException("unknown entry " + words[0]);
+                }
+            } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+                throw new IOException(path + ":" + number + ": " + e.getMessage(), e);
+            }
+        }
+        if (size <= 0 || spawns.isEmpty()) {
+            throw new IOException(path + ": a map needs a size and at least one spawn");
+        }
+        return new GameMap(path, size, figures, spawns, new SpatialGrid(figures));
+    }
+
+    private static Texture texture(Map<String, Texture> textures, String name) {
+        Texture texture = textures.get(name);
+        if (texture == null) {
+            throw new IllegalArgumentException("undeclared texture " + name);
+        }
+        return texture;
+    }
+
+    public static GameMap read(Path path) throws IOException {
+        MappedByteBuffer in;
+        try (FileChannel channel = FileChannel.open(path)) {
+            in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (in.remaining() < 8 || in.getInt() != MAGIC || in.getInt() != VERSION) {
+            throw new IOException(path + " is not a compiled map of this version, run MapCompiler");
+        }
+        double size = in.getDouble();
+        Texture[] textures = new Texture[in.getInt()];
+        for (int i = 0; i < textures.length; i++) {
+            byte[] name = new byte[in.getShort()];
+            in.get(name);
+            textures[i] = TextureManager.getTexture(new String(name, StandardCharsets.UTF_8));
+        }
+        int[] polygonWalls = getInts(in, in.getInt());
+        int[] wallTextures = getInts(in, in.getInt());
+        double[] walls = getDoubles(in, 4 * wallTextures.length);
+        int[] circleTextures = getInts(in, in.getInt());
+        double[] circles = getDoubles(in, 3 * circleTextures.length);
+        double[] spawnPoints = getDoubles(in, 2 * in.getInt());
+        double minX = in.getDouble(), minY = in.getDouble();
+        int columns = in.getInt(), rows = in.getInt();
+        int[] offsets = getInts(in, columns * rows + 1);
+        int[] items = getInts(in, offsets[offsets.length - 1]);
+        long[] sets = getLongs(in, in.getInt());
+
+        List<Figure> figures = new ArrayList<>();
+        Polygon[] wallPolygons = new Polygon[wallTextures.length];
+        int[] wallSides = new int[wallTextures.length];
+        int wall = 0;
+        for (int count : polygonWalls) {
+            List<Point> points = new ArrayList<>(count);
+            List<Texture> sides = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                points.add(new Point(walls[4 * (wall + i)], walls[4 * (wall + i) + 1]));
+                sides.add(textures[wallTextures[wall + i]]);
+            }
+            Polygon polygon = new Polygon(points, sides);
+            figures.add(polygon);
+            for (int i = 0; i < count; i++) {
+                wallPolygons[wall] = polygon;
+                wallSides[wall++] = i;
+            }
+        }
+        Circle[] circleFigures = new Circle[circleTextures.length];
+        for (int i = 0; i < circleFigures.length; i++) {
+            circleFigures[i] = new Circle(
+                new Point(circles[3 * i], circles[3 * i + 1]),
+                circles[3 * i + 2],
+                textures[circleTextures[i]]
+            );
+            figures.add(circleFigures[i]);
+        }
+        List<Point> spawns = new ArrayList<>();
+        for (int i = 0; i < spawnPoints.length; i += 2) {
+            spawns.add(new Point(spawnPoints[i], spawnPoints[i + 1]));
+        }
+        int[][] cells = new int[columns * rows][];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = Arrays.copyOfRange(items, offsets[i], offsets[i + 1]);
+        }
+        SpatialGrid grid = new SpatialGrid(
+            walls,
+            wallPolygons,
+            wallSides,
+            circles,
+            circleFigures,
+            minX,
+            minY,
+            columns,
+            rows,
+            cells
+        );
+        grid.setPvs(new PvsGrid(grid, sets));
+        return new GameMap(path, size, figures, spawns, grid);
+    }
+
+    private static int[] getInts(ByteBuffer in, int count) {
+        int[] values = new int[count];
+        in.asIntBuffer().get(values);
+        in.position(in.position() + Integer.BYTES * count);
+        return values;
+    }
+
+    private static double[] getDoubles(ByteBuffer in, int count) {
+        double[] values = new double[count];
+        in.asDoubleBuffer().get(values);
+        in.position(in.position() + Double.BYTES * count);
+        return values;
+    }
+
+    private static long[] getLongs(ByteBuffer in, int count) {
+        long[] values = new long[count];
+        in.asLongBuffer().get(values);
+        in.position(in.position() + Long.BYTES * count);
+        return values;
+    }
+
+    public void write(Path path) throws IOException {
+        List<Texture> textures = new ArrayList<>();
+        Map<Texture, Integer> textureIds = new HashMap<>();
+        List<Polygon> polygons = new ArrayList<>();
+        List<Circle> circles = new ArrayList<>();
+        for (Figure figure : figures) {
+            if (figure instanceof Polygon polygon) {
+                polygons.add(polygon);
+                polygon.textures().forEach(texture -> textureIds.computeIfAbsent(texture, key -> {
+                    textures.add(key);
+                    return textures.size() - 1;
+                }));
+            } else if (figure instanceof Circle circle) {
+                circles.add(circle);
+                textureIds.computeIfAbsent(circle.texture(), key -> {
+                    textures.add(key);
+                    return textures.size() - 1;
+                });
+            }
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeDouble(size);
+            out.writeInt(textures.size());
+            for (Texture texture : textures) {
+                byte[] name = texture.getName().getBytes(StandardCharsets.UTF_8);
+                out.writeShort(name.length);
+                out.write(name);
+            }
+            out.writeInt(polygons.size());
+            for (Polygon polygon : polygons) {
+                out.writeInt(polygon.points().size());
+            }
+            out.writeInt(grid.getWallCount());
+            for (Polygon polygon : polygons) {
+                for (Texture texture : polygon.textures()) {
+                    out.writeInt(textureIds.get(texture));
+                }
+            }
+            for (double value : grid.getWalls()) {
+                out.writeDouble(value);
+            }
+            out.writeInt(circles.size());
+            for (Circle circle : circles) {
+                out.writeInt(textureIds.get(circle.texture()));
+            }
+            for (double value : grid.getCircles()) {
+                out.writeDouble(value);
+            }
+            out.writeInt(spawns.size());
+            for (Point spawn : spawns) {
+                out.writeDouble(spawn.x());
+                out.writeDouble(spawn.y());
+            }
+
+            out.writeDouble(grid.getMinX());
+            out.writeDouble(grid.getMinY());
+            out.writeInt(grid.getColumns());
+            out.writeInt(grid.getRows());
+            int offset = 0;
+            out.writeInt(offset);
+            for (int row = 0; row < grid.getRows(); row++) {
+                for (int column = 0; column < grid.getColumns(); column++) {
+                    offset += grid.getCell(column, row).length;
+                    out.writeInt(offset);
+                }
+            }
+            for (int row = 0; row < grid.getRows(); row++) {
+                for (int column = 0; column < grid.getColumns(); column++) {
+                    for (int item : grid.getCell(column, row)) {
+                        out.writeInt(item);
+                    }
+                }
+            }
+            PvsGrid pvs = grid.getPvs() == null ? new PvsGrid(grid) : grid.getPvs();
+            out.writeInt(pvs.getSets().length);
+            for (long set : pvs.getSets()) {
+                out.writeLong(set);
+            }
+        }
+    }
+
+    //the file it was loaded from
+    public Path getPath() {
+        return path;
+    }
+
+    public double getSize() {
+        return size;
+    }
+
+    public List<Figure> getFigures() {
+        return figures;
+    }
+
+    public List<Point> getSpawns() {
+        return spawns;
+    }
+
+    public SpatialGrid getGrid() {
+        return grid;
+    }
+}
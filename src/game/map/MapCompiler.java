@@ -0,0 +1,27 @@
+package game.map;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+//java game.map.MapCompiler maps/arena.map maps/arena.bin
+public class MapCompiler {
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("usage: MapCompiler <source.map> <compiled.bin>");
+            System.exit(2);
+        }
+        long start = System.nanoTime();
+        GameMap map = GameMap.parse(Path.of(args[0]));
+        map.write(Path.of(args[1]));
+        System.out.printf(
+            "%s: %d walls, %d circles, %d spawns, %dx%d cells in %.1f ms%n",
+            args[1],
+            map.getGrid().getWallCount(),
+            map.getGrid().getCircleCount(),
+            map.getSpawns().size(),
+            map.getGrid().getColumns(),
+            map.getGrid().getRows(),
+            (System.nanoTime() - start) / 1e6
+        );
+    }
+}
@@ -0,0 +1,38 @@
+package game.map;
+
+import game.figure.Point;
+import game.util.SpatialGrid;
+import java.util.List;
+
+//a loaded map is already in memory with its index, so it is served as a single chunk covering the whole world
+public class MapSource implements ChunkSource {
+    private final GameMap map;
+
+    public MapSource(GameMap map) {
+        this.map = map;
+    }
+
+    public GameMap getMap() {
+        return map;
+    }
+
+    @Override
+    public double getSize() {
+        return map.getSize();
+    }
+
+    @Override
+    public double getChunkSize() {
+        return map.getSize();
+    }
+
+    @Override
+    public List<Point> getSpawns() {
+        return map.getSpawns();
+    }
+
+    @Override
+    public SpatialGrid load(int column, int row) {
+        return column == 0 && row == 0 ? map.getGrid() : null;
+    }
+}
@@ -0,0 +1,110 @@
+package game.map;
+
+import game.figure.Circle;
+import game.figure.Figure;
+import game.figure.Point;
+import game.figure.Polygon;
+import game.util.SpatialGrid;
+import game.view.Texture;
+import game.view.TextureManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+//an open field of blocks and posts, each chunk generated from the seed and its coordinates, so it comes back the same
+//every time it is loaded; figures stay inside their chunk, the world edge is walled and the middle is kept clear
+//for the spawns
+public class ProceduralChunks implements ChunkSource {
+    private static final double CHUNK_SIZE = 250;
+    private static final double CLEARING = 150;
+    private static final double BORDER = 2;
+    private final long seed;
+    private final double size;
+    private final List<Point> spawns = new ArrayList<>();
+    private final Texture[] blocks = {
+        TextureManager.getTexture("bricks.png"),
+        TextureManager.getTexture("stone_bricks.png"),
+        TextureManager.getTexture("stone.png"),
+        TextureManager.getTexture("planks.png")
+    };
+    private final Texture[] posts = {
+        TextureManager.getTexture("wood.png"),
+        TextureManager.getTexture("birch.png")
+    };
+
+    public ProceduralChunks(long seed, double size) {
+        this.seed = seed;
+        this.size = size;
+        for (int i = 0; i < 6; i++) {
+            double angle = i * Math.PI / 3;
+            spawns.add(new Point(size / 2 + Math.cos(angle) * CLEARING / 2, size / 2 + Math.sin(angle) * CLEARING / 2));
+        }
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    @Override
+    public double getSize() {
+        return size;
+    }
+
+    @Override
+    public double getChunkSize() {
+        return CHUNK_SIZE;
+    }
+
+    @Override
+    public List<Point> getSpawns() {
+        return spawns;
+    }
+
+    @Override
+    public SpatialGrid load(int column, int row) {
+        double minX = column * CHUNK_SIZE, minY = row * CHUNK_SIZE;
+        double maxX = Math.min(size, minX + CHUNK_SIZE), maxY = Math.min(size, minY + CHUNK_SIZE);
+        if (minX >= size || minY >= size || column < 0 || row < 0) {
+            return null;
+        }
+        Random random = new Random(seed ^ (column * 0x9E3779B97F4A7C15L + row) * 0xBF58476D1CE4E5B9L);
+        List<Figure> figures = new ArrayList<>();
+        for (int count = 2 + random.nextInt(5); count > 0; count--) {
+            double half = 5 + random.nextDouble() * 25;
+            double x = minX + half + random.nextDouble() * (CHUNK_SIZE - 2 * half);
+            double y = minY + half + random.nextDouble() * (CHUNK_SIZE - 2 * half);
+            if (x + half > maxX || y + half > maxY || Math.hypot(x - size / 2, y - size / 2) < CLEARING + half) {
+                continue;
+            }
+            if (random.nextInt(3) == 0) {
+                figures.add(new Circle(new Point(x, y), half / 2, posts[random.nextInt(posts.length)]));
+            } else {
+                double halfHeight = 5 + random.nextDouble() * (half - 5);
+                Texture texture = blocks[random.nextInt(blocks.length)];
+                figures.add(box(x - half, y - halfHeight, x + half, y + halfHeight, texture));
+            }
+        }
+        if (column == 0) {
+            figures.add(box(0, minY, BORDER, maxY, blocks[0]));
+        }
+        if (row == 0) {
+            figures.add(box(minX, 0, maxX, BORDER, blocks[0]));
+        }
+        if (maxX == size) {
+            figures.add(box(size - BORDER, minY, size, maxY, blocks[0]));
+        }
+        if (maxY == size) {
+            figures.add(box(minX, size - BORDER, maxX, size, blocks[0]));
+        }
+        return figures.isEmpty() ? null : new SpatialGrid(figures);
+    }
+
+    private static Polygon box(double minX, double minY, double maxX, double maxY, Texture texture) {
+        return new Polygon(List.of(
+            new Point(minX, minY),
+            new Point(minX, maxY),
+            new Point(maxX, maxY),
+            new Point(maxX, minY)
+        ), texture);
+    }
+}
@@ -0,0 +1,11 @@
+package game.map;
+
+import game.figure.Figure;
+import game.util.ChunkGrid;
+import game.util.NavGrid;
+import java.util.List;
+
+//the chunks resident around the participants: their index, the walkability raster around the first participant
+//and every figure in them for the radar
+public record Region(ChunkGrid grid, NavGrid navGrid, List<Figure> figures) {
+}
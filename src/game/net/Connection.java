@@ -0,0 +1,105 @@
+package game.net;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.PortUnreachableException;
+import java.net.SocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+//client end of the protocol, keeps the snapshots it decoded so the server can send deltas against them;
+//the first input doubles as the join request
+public class Connection implements Closeable {
+    private final DatagramChannel channel;
+    private final WorldState[] states = new WorldState[Protocol.HISTORY];
+    private final ByteBuffer in = ByteBuffer.allocateDirect(Protocol.MAX_PACKET);
+    private final ByteBuffer out = ByteBuffer.allocateDirect(32);
+    private WorldState latest;
+    private int id = -1;
+    private int input;
+    private long bytesReceived;
+
+    public Connection(SocketAddress server) throws IOException {
+        channel = DatagramChannel.open();
+        channel.connect(server);
+        channel.configureBlocking(false);
+    }
+
+    //move is an angle relative to the view or NaN when standing, turn and shots accumulate since the last call
+    public void sendInput(double move, double turn, int shots) throws IOException {
+        out.clear();
+        out.put(Protocol.INPUT)
+            .putInt(++input)
+            .putInt(latest == null ? Protocol.NO_BASE : latest.getSequence())
+            .putFloat((float) move)
+            .putFloat((float) turn)
+            .put((byte) Math.min(shots, Byte.MAX_VALUE));
+        out.flip();
+        channel.write(out);
+    }
+
+    //reads every pending snapshot, returns the newest one or null when nothing newer arrived
+    public WorldState poll() throws IOException {
+        WorldState newest = null;
+        while (true) {
+            in.clear();
+            try {
+                if (channel.receive(in) == null) {
+                    return newest;
+                }
+            } catch (PortUnreachableException e) {
+                //nobody listens yet, the next input asks again
+                return newest;
+            }
+            in.flip();
+            bytesReceived += in.remaining();
+            if (in.remaining() < 13 || in.get() != Protocol.SNAPSHOT) {
+                continue;
+            }
+            int sequence = in.getInt(), base = in.getInt(), receiver = in.getInt();
+            if (latest != null && sequence <= latest.getSequence()) {
+                continue;
+            }
+            WorldState baseState = null;
+            if (base != Protocol.NO_BASE) {
+                baseState = states[base % Protocol.HISTORY];
+                if (baseState == null || baseState.getSequence() != base) {
+                    continue;
+                }
+            }
+            WorldState state;
+            try {
+                state = WorldState.readDelta(in, baseState, sequence);
+            } catch (IllegalArgumentException | BufferUnderflowException e) {
+                //a truncated or mismatched delta, the previous state stays until a good one arrives
+                continue;
+            }
+            latest = state;
+            states[sequence % Protocol.HISTORY] = latest;
+            id = receiver;
+            newest = latest;
+        }
+    }
+
+    //id of this client's player in the snapshots, -1 until the first one arrives
+    public int getId() {
+        return id;
+    }
+
+    public WorldState getLatest() {
+        return latest;
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.clear();
+        out.put(Protocol.BYE).flip();
+        channel.write(out);
+        channel.close();
+    }
+}
@@ -0,0 +1,66 @@
+package game.net;
+
+import game.Game;
+import game.GameLoop;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Random;
+
+//runs a server and simulated clients over loopback in one thread: -Dshooter.clients, -Dshooter.bots and
+//-Dshooter.ticks; checks every decoded snapshot against the server's copy and reports traffic and encode cost
+public class LoadTest {
+    public static void main(String[] args) throws IOException {
+        int clientCount = Integer.getInteger("shooter.clients", 32);
+        int bots = Integer.getInteger("shooter.bots", Game.BOT_NUMBERS);
+        int ticks = Integer.getInteger("shooter.ticks", 10 * GameLoop.TICKS_PER_SECOND);
+        Random random = new Random(1);
+
+        Game game = new Game(bots);
+        Server server = new Server(game, new InetSocketAddress("127.0.0.1", 0));
+        Connection[] clients = new Connection[clientCount];
+        double[] moves = new double[clientCount];
+        for (int i = 0; i < clientCount; i++) {
+            clients[i] = new Connection(server.getAddress());
+            moves[i] = Double.NaN;
+        }
+
+        long snapshots = 0, mismatches = 0;
+        long start = System.nanoTime();
+        for (int tick = 0; tick < ticks; tick++) {
+            for (int i = 0; i < clientCount; i++) {
+                WorldState state = clients[i].poll();
+                if (state != null) {
+                    snapshots++;
+                    WorldState sent = server.getBase(state.getSequence());
+                    if (sent != null && !sent.sameAs(state)) {
+                        mismatches++;
+                    }
+                }
+                if (random.nextInt(50) == 0) {
+                    moves[i] = random.nextInt(4) == 0 ? Double.NaN : random.nextInt(8) * Math.PI / 4;
+                }
+                clients[i].sendInput(moves[i], random.nextGaussian() * 0.05, random.nextInt(20) == 0 ? 1 : 0);
+            }
+            server.tick();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long received = 0;
+        for (Connection client : clients) {
+            received += client.getBytesReceived();
+            client.close();
+        }
+        server.close();
+        game.shutdown();
+        System.out.printf("clients: %d, bots: %d, ticks: %d in %.1f s%n", clientCount, bots, ticks, seconds);
+        System.out.printf(
+            "snapshots: %d decoded, %d mismatched, %.0f B average, %.1f KB/s per client at %d ticks/s%n",
+            snapshots,
+            mismatches,
+            (double) server.getBytesSent() / server.getPacketsSent(),
+            (double) received / clientCount / ticks * GameLoop.TICKS_PER_SECOND / 1024,
+            GameLoop.TICKS_PER_SECOND
+        );
+        System.out.printf("server encode: %.1f us/tick%n", server.getEncodeNanos() / 1e3 / ticks);
+    }
+}
@@ -0,0 +1,40 @@
+package game.net;
+
+//wire format shared by Server and Connection, one message per datagram, numbers are big-endian;
+//input is [INPUT, int sequence, int acknowledged snapshot, float move angle or NaN, float turn, byte shots],
+//a snapshot is [SNAPSHOT, int sequence, int base or -1, int receiver id, WorldState delta]
+public class Protocol {
+    public static final int DEFAULT_PORT = 27015;
+    public static final int MAX_PACKET = 65507;
+    public static final byte INPUT = 1;
+    public static final byte SNAPSHOT = 2;
+    public static final byte BYE = 3;
+    public static final int NO_BASE = -1;
+    //snapshots kept on both ends as delta bases, older acknowledgements get a full snapshot
+    public static final int HISTORY = 64;
+    public static final long TIMEOUT_NANOS = 5_000_000_000L;
+    //participants one snapshot can hold: a full one is 14 bytes each plus 2 for every one removed since its base
+    public static final int MAX_PARTICIPANTS = (MAX_PACKET - 13 - 4) / 16;
+    //shots the server applies for one client per tick, whatever the datagrams of that tick add up to
+    public static final int MAX_SHOTS = 4;
+    private static final double POSITION_SCALE = 64;
+    private static final double ANGLE_SCALE = 65536 / (2 * Math.PI);
+    //positions are sent as 16 bits in 1/64 units, anything beyond would be clamped to the edge
+    public static final double MAX_WORLD_SIZE = 0xFFFF / POSITION_SCALE;
+
+    public static int quantizePosition(double position) {
+        return Math.max(0, Math.min(0xFFFF, (int) Math.round(position * POSITION_SCALE)));
+    }
+
+    public static double position(int quantized) {
+        return quantized / POSITION_SCALE;
+    }
+
+    public static int quantizeAngle(double alpha) {
+        return (int) Math.round(alpha * ANGLE_SCALE) & 0xFFFF;
+    }
+
+    public static double angle(int quantized) {
+        return quantized / ANGLE_SCALE;
+    }
+}
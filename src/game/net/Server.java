@@ -0,0 +1,259 @@
+package game.net;
+
+import game.Game;
+import game.GameLoop;
+import game.Player;
+import game.view.Texture;
+import game.view.TextureManager;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+//authoritative simulation over a non-blocking UDP channel, drained once per tick; every client gets the world
+//as a delta against the newest snapshot it acknowledged, deltas against the same base are encoded once per tick
+public class Server implements Closeable {
+    private final Game game;
+    private final DatagramChannel channel;
+    private final Map<SocketAddress, Remote> remotes = new HashMap<>();
+    private final WorldState[] history = new WorldState[Protocol.HISTORY];
+    //the game tick each kept snapshot was taken after
+    private final int[] ticks = new int[Protocol.HISTORY];
+    private final Map<Integer, ByteBuffer> deltas = new HashMap<>();
+    private final List<ByteBuffer> spareDeltas = new ArrayList<>();
+    private final ByteBuffer in = ByteBuffer.allocateDirect(Protocol.MAX_PACKET);
+    private final ByteBuffer out = ByteBuffer.allocateDirect(Protocol.MAX_PACKET);
+    private final Texture front = TextureManager.getTexture("front.png", true);
+    private final Texture right = TextureManager.getTexture("right.png", true);
+    private final Texture back = TextureManager.getTexture("back.png", true);
+    private final Texture left = TextureManager.getTexture("left.png", true);
+    private int sequence;
+    private long bytesSent;
+    private long packetsSent;
+    private long encodeNanos;
+    private long reportStart = System.nanoTime();
+    private long reportedBytes;
+    private long reportedPackets;
+    private long reportedEncodeNanos;
+
+    public Server(Game game, SocketAddress address) throws IOException {
+        if (game.SIZE > Protocol.MAX_WORLD_SIZE) {
+            throw new IllegalArgumentException("World size " + game.SIZE + " is more than snapshots can encode");
+        }
+        if (game.getParticipantCount() > Protocol.MAX_PARTICIPANTS) {
+            throw new IllegalArgumentException("More participants than a snapshot can hold");
+        }
+        this.game = game;
+        channel = DatagramChannel.open();
+        channel.bind(address);
+        channel.configureBlocking(false);
+    }
+
+    public SocketAddress getAddress() throws IOException {
+        return channel.getLocalAddress();
+    }
+
+    public void tick() throws IOException {
+        receive();
+        long now = System.nanoTime();
+        for (Iterator<Remote> iterator = remotes.values().iterator(); iterator.hasNext(); ) {
+            Remote remote = iterator.next();
+            if (now - remote.heard > Protocol.TIMEOUT_NANOS) {
+                game.removePlayer(remote.player);
+                iterator.remove();
+            }
+        }
+
+        game.tick();
+        for (Remote remote : remotes.values()) {
+            game.applyInput(remote.player, remote.move, remote.turn, remote.shots, getTick(remote.ack));
+            remote.turn = 0;
+            remote.shots = 0;
+        }
+        broadcast();
+    }
+
+    private void receive() throws IOException {
+        while (true) {
+            in.clear();
+            SocketAddress address = channel.receive(in);
+            if (address == null) {
+                return;
+            }
+            in.flip();
+            if (!in.hasRemaining()) {
+                continue;
+            }
+            byte type = in.get();
+            if (type == Protocol.BYE) {
+                Remote remote = remotes.remove(address);
+                if (remote != null) {
+                    game.removePlayer(remote.player);
+                }
+            } else if (type == Protocol.INPUT && in.remaining() >= 17) {
+                Remote remote = remotes.get(address);
+                if (remote == null && game.getParticipantCount() >= Protocol.MAX_PARTICIPANTS) {
+                    //a full server does not answer, the client keeps asking until someone leaves
+                    continue;
+                }
+                if (remote == null) {
+                    Player player = new Player(front, right, back, left);
+                    game.addPlayer(player);
+                    remote = new Remote(address, player);
+                    remotes.put(address, remote);
+                }
+                remote.heard = System.nanoTime();
+                int input = in.getInt();
+                int ack = in.getInt();
+                float move = in.getFloat();
+                float turn = in.getFloat();
+                byte shots = in.get();
+                //a NaN or infinite turn would stick in the player's angle for good, NaN move is the only non-finite
+                //value that means something
+                if (!Float.isFinite(turn) || Float.isInfinite(move) || shots < 0) {
+                    continue;
+                }
+                //a late datagram still carries turns and shots, only the held movement key is stale
+                if (input > remote.input) {
+                    remote.input = input;
+                    remote.move = move;
+                }
+                remote.ack = Math.max(remote.ack, ack);
+                remote.turn += turn;
+                remote.shots = Math.min(remote.shots + shots, Protocol.MAX_SHOTS);
+            }
+        }
+    }
+
+    private void broadcast() throws IOException {
+        long start = System.nanoTime();
+        WorldState state = WorldState.capture(game, ++sequence);
+        history[sequence % Protocol.HISTORY] = state;
+        ticks[sequence % Protocol.HISTORY] = game.getTicks();
+        spareDeltas.addAll(deltas.values());
+        deltas.clear();
+        for (Remote remote : remotes.values()) {
+            int base = getBase(remote.ack) == null ? Protocol.NO_BASE : remote.ack;
+            ByteBuffer delta = deltas.get(base);
+            if (delta == null) {
+                delta = spareDeltas.isEmpty() ?
+                    ByteBuffer.allocate(Protocol.MAX_PACKET - 13) :
+                    spareDeltas.remove(spareDeltas.size() - 1).clear();
+                state.writeDelta(getBase(base), delta);
+                delta.flip();
+                deltas.put(base, delta);
+            }
+            out.clear();
+            out.put(Protocol.SNAPSHOT).putInt(sequence).putInt(base).putInt(remote.player.getId());
+            out.put(delta.duplicate());
+            out.flip();
+            bytesSent += out.remaining();
+            packetsSent++;
+            channel.send(out, remote.address);
+        }
+        encodeNanos += System.nanoTime() - start;
+    }
+
+    //the game tick whose state the client saw last, the current one when it has not seen anything kept
+    private int getTick(int ack) {
+        return getBase(ack) == null ? game.getTicks() : ticks[ack % Protocol.HISTORY];
+    }
+
+    //the state sent with this sequence, if it is still kept
+    public WorldState getBase(int sequence) {
+        if (sequence <= 0 || this.sequence - sequence >= Protocol.HISTORY) {
+            return null;
+        }
+        WorldState state = history[sequence % Protocol.HISTORY];
+        return state != null && state.getSequence() == sequence ? state : null;
+    }
+
+    public Game getGame() {
+        return game;
+    }
+
+    public int getClientCount() {
+        return remotes.size();
+    }
+
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    public long getPacketsSent() {
+        return packetsSent;
+    }
+
+    //time spent capturing, encoding and sending snapshots
+    public long getEncodeNanos() {
+        return encodeNanos;
+    }
+
+    //clients and outgoing traffic since the previous report
+    public void report() {
+        long now = System.nanoTime();
+        long packets = packetsSent - reportedPackets;
+        System.out.printf(
+            "clients: %d, out: %.1f KB/s, %.0f B/snapshot, encode %.1f us/tick%n",
+            remotes.size(),
+            (bytesSent - reportedBytes) / 1024.0 / ((now - reportStart) / 1e9),
+            packets == 0 ? 0.0 : (double) (bytesSent - reportedBytes) / packets,
+            (encodeNanos - reportedEncodeNanos) / 1e3 / ((now - reportStart) / (double) GameLoop.TICK_NANOS)
+        );
+        reportStart = now;
+        reportedBytes = bytesSent;
+        reportedPackets = packetsSent;
+        reportedEncodeNanos = encodeNanos;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static class Remote {
+        private final SocketAddress address;
+        private final Player player;
+        private long heard;
+        private int input = Integer.MIN_VALUE;
+        private int ack = Protocol.NO_BASE;
+        private double move = Double.NaN;
+        private double turn;
+        private int shots;
+
+        private Remote(SocketAddress address, Player player) {
+            this.address = address;
+            this.player = player;
+        }
+    }
+
+    //-Dshooter.port and -Dshooter.bots, prints clients and outgoing traffic once a second
+    public static void main(String[] args) throws IOException {
+        int port = Integer.getInteger("shooter.port", Protocol.DEFAULT_PORT);
+        Game game = new Game(Integer.getInteger("shooter.bots", Game.BOT_NUMBERS));
+        game.setBotWorkers(Integer.getInteger("shooter.botWorkers", Runtime.getRuntime().availableProcessors()));
+        Server server = new Server(game, new InetSocketAddress(port));
+        System.out.println("listening on " + server.getAddress());
+
+        GameLoop loop = new GameLoop(() -> {
+            try {
+                server.tick();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (game.getTicks() % GameLoop.TICKS_PER_SECOND == 0) {
+                server.report();
+            }
+        }, interpolation -> {
+        }, GameLoop.TICK_NANOS);
+        loop.start();
+    }
+}
@@ -0,0 +1,188 @@
+package game.net;
+
+import game.Game;
+import game.Player;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+//quantized state of every participant at one tick, sorted by id so two states are diffed with one merge;
+//a delta is [short changed, short removed, removed ids, changed entities as short id, byte field mask, fields]
+public class WorldState {
+    public static final int X = 0;
+    public static final int Y = 1;
+    public static final int ALPHA = 2;
+    public static final int HEALTH = 3;
+    public static final int KILLS = 4;
+    public static final int DEATHS = 5;
+    private static final int FIELDS = 6;
+    private static final int ALL_FIELDS = (1 << FIELDS) - 1;
+    private static final boolean[] BYTE_FIELDS = {false, false, false, true, false, false};
+    private final int sequence;
+    private final int count;
+    private final int[] ids;
+    private final int[] values;
+
+    private WorldState(int sequence, int count, int[] ids, int[] values) {
+        this.sequence = sequence;
+        this.count = count;
+        this.ids = ids;
+        this.values = values;
+    }
+
+    public static WorldState capture(Game game, int sequence) {
+        int count = game.getParticipantCount();
+        int[] ids = new int[count];
+        int[] values = new int[count * FIELDS];
+        for (int i = 0; i < count; i++) {
+            Player participant = game.getParticipant(i);
+            ids[i] = participant.getId();
+            int k = i * FIELDS;
+            values[k + X] = Protocol.quantizePosition(participant.getPos().x());
+            values[k + Y] = Protocol.quantizePosition(participant.getPos().y());
+            values[k + ALPHA] = Protocol.quantizeAngle(participant.getAlpha());
+            values[k + HEALTH] = Math.max(0, Math.min(0xFF, participant.getHealthPoints()));
+            values[k + KILLS] = Math.min(0xFFFF, participant.getKills());
+            values[k + DEATHS] = Math.min(0xFFFF, participant.getDeaths());
+        }
+        sortById(count, ids, values);
+        return new WorldState(sequence, count, ids, values);
+    }
+
+    //participants come as players then bots, which is rarely in id order, so this is an insertion sort
+    //over a nearly sorted array
+    private static void sortById(int count, int[] ids, int[] values) {
+        int[] entry = new int[FIELDS];
+        for (int i = 1; i < count; i++) {
+            int id = ids[i], j = i - 1;
+            if (ids[j] < id) {
+                continue;
+            }
+            System.arraycopy(values, i * FIELDS, entry, 0, FIELDS);
+            while (j >= 0 && ids[j] > id) {
+                ids[j + 1] = ids[j];
+                System.arraycopy(values, j * FIELDS, values, (j + 1) * FIELDS, FIELDS);
+                j--;
+            }
+            ids[j + 1] = id;
+            System.arraycopy(entry, 0, values, (j + 1) * FIELDS, FIELDS);
+        }
+    }
+
+    //writes what changed since base, or everything when base is null
+    public void writeDelta(WorldState base, ByteBuffer out) {
+        int header = out.position();
+        out.putShort((short) 0).putShort((short) 0);
+        int removed = 0, changed = 0;
+        if (base != null) {
+            for (int i = 0, j = 0; j < base.count; j++) {
+                while (i < count && ids[i] < base.ids[j]) {
+                    i++;
+                }
+                if (i == count || ids[i] != base.ids[j]) {
+                    out.putShort((short) base.ids[j]);
+                    removed++;
+                }
+            }
+        }
+        for (int i = 0, j = 0; i < count; i++) {
+            while (base != null && j < base.count && base.ids[j] < ids[i]) {
+                j++;
+            }
+            boolean known = base != null && j < base.count && base.ids[j] == ids[i];
+            int mask = 0;
+            for (int f = 0; f < FIELDS; f++) {
+                if (!known || base.values[j * FIELDS + f] != values[i * FIELDS + f]) {
+                    mask |= 1 << f;
+                }
+            }
+            if (mask == 0) {
+                continue;
+            }
+            out.putShort((short) ids[i]);
+            out.put((byte) mask);
+            for (int f = 0; f < FIELDS; f++) {
+                if ((mask & 1 << f) != 0) {
+                    if (BYTE_FIELDS[f]) {
+                        out.put((byte) values[i * FIELDS + f]);
+                    } else {
+                        out.putShort((short) values[i * FIELDS + f]);
+                    }
+                }
+            }
+            changed++;
+        }
+        out.putShort(header, (short) changed).putShort(header + 2, (short) removed);
+    }
+
+    //rebuilds the state a delta was written for, base must be the state it was written against
+    public static WorldState readDelta(ByteBuffer in, WorldState base, int sequence) {
+        int changed = in.getShort() & 0xFFFF, removed = in.getShort() & 0xFFFF;
+        int[] removedIds = new int[removed];
+        for (int i = 0; i < removed; i++) {
+            removedIds[i] = in.getShort() & 0xFFFF;
+        }
+        int baseCount = base == null ? 0 : base.count;
+        int[] ids = new int[baseCount + changed];
+        int[] values = new int[ids.length * FIELDS];
+        int count = 0, j = 0, r = 0;
+        for (int c = 0; c <= changed; c++) {
+            int id = Integer.MAX_VALUE, mask = 0;
+            if (c < changed) {
+                id = in.getShort() & 0xFFFF;
+                mask = in.get() & 0xFF;
+            }
+            //unchanged base entities before this one
+            for (; j < baseCount && base.ids[j] < id; j++) {
+                while (r < removed && removedIds[r] < base.ids[j]) {
+                    r++;
+                }
+                if (r < removed && removedIds[r] == base.ids[j]) {
+                    continue;
+                }
+                ids[count] = base.ids[j];
+                System.arraycopy(base.values, j * FIELDS, values, count * FIELDS, FIELDS);
+                count++;
+            }
+            if (c == changed) {
+                break;
+            }
+            if (j < baseCount && base.ids[j] == id) {
+                System.arraycopy(base.values, j * FIELDS, values, count * FIELDS, FIELDS);
+                j++;
+            } else if (mask != ALL_FIELDS) {
+                throw new IllegalArgumentException("Entity " + id + " is not in the base snapshot");
+            }
+            ids[count] = id;
+            for (int f = 0; f < FIELDS; f++) {
+                if ((mask & 1 << f) != 0) {
+                    values[count * FIELDS + f] = BYTE_FIELDS[f] ? in.get() & 0xFF : in.getShort() & 0xFFFF;
+                }
+            }
+            count++;
+        }
+        return new WorldState(sequence, count, ids, values);
+    }
+
+    public int getSequence() {
+        return sequence;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getId(int index) {
+        return ids[index];
+    }
+
+    //one of the field constants, quantized as in Protocol
+    public int getValue(int index, int field) {
+        return values[index * FIELDS + field];
+    }
+
+    public boolean sameAs(WorldState other) {
+        return count == other.count &&
+            Arrays.equals(ids, 0, count, other.ids, 0, count) &&
+            Arrays.equals(values, 0, count * FIELDS, other.values, 0, count * FIELDS);
+    }
+}
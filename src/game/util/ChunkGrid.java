@@ -0,0 +1,163 @@
+package game.util;
+
+//the resident part of a world split into square chunks with a SpatialGrid each; a figure that crosses a chunk border
+//is indexed by every chunk it overlaps. immutable, a new one is built whenever the resident chunks change.
+//chunks are found through an open addressing table, so queries do not allocate
+public class ChunkGrid {
+    private final double chunkSize;
+    private final long[] keys;
+    private final SpatialGrid[] grids;
+    private final int mask;
+    private final int maxItemCount;
+    private final int minColumn;
+    private final int maxColumn;
+    private final int minRow;
+    private final int maxRow;
+    //the only resident chunk of a small world, queried directly
+    private final SpatialGrid single;
+
+    //keys from key(column, row), empty chunks may be left out
+    public ChunkGrid(double chunkSize, long[] chunkKeys, SpatialGrid[] chunkGrids, int count) {
+        this.chunkSize = chunkSize;
+        int capacity = Integer.highestOneBit(Math.max(1, 2 * count)) << 1;
+        keys = new long[capacity];
+        grids = new SpatialGrid[capacity];
+        mask = capacity - 1;
+        int maxItems = 0;
+        int minColumn = Integer.MAX_VALUE, maxColumn = Integer.MIN_VALUE;
+        int minRow = Integer.MAX_VALUE, maxRow = Integer.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            int slot = slot(chunkKeys[i]);
+            while (grids[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = chunkKeys[i];
+            grids[slot] = chunkGrids[i];
+            maxItems = Math.max(maxItems, chunkGrids[i].getWallCount() + chunkGrids[i].getCircleCount());
+            minColumn = Math.min(minColumn, (int) (chunkKeys[i] >> 32));
+            maxColumn = Math.max(maxColumn, (int) (chunkKeys[i] >> 32));
+            minRow = Math.min(minRow, (int) chunkKeys[i]);
+            maxRow = Math.max(maxRow, (int) chunkKeys[i]);
+        }
+        maxItemCount = maxItems;
+        this.minColumn = minColumn;
+        this.maxColumn = maxColumn;
+        this.minRow = minRow;
+        this.maxRow = maxRow;
+        single = count == 1 ? chunkGrids[0] : null;
+    }
+
+    public static long key(int column, int row) {
+        return (long) column << 32 | (row & 0xFFFFFFFFL);
+    }
+
+    private int slot(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+    }
+
+    public int column(double x) {
+        return (int) Math.floor(x / chunkSize);
+    }
+
+    public int row(double y) {
+        return (int) Math.floor(y / chunkSize);
+    }
+
+    //null when the chunk is empty or not resident
+    public SpatialGrid getChunk(int column, int row) {
+        long key = key(column, row);
+        for (int slot = slot(key); grids[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return grids[slot];
+            }
+        }
+        return null;
+    }
+
+    //walks the resident chunks along the ray in order and stops after the first one that holds the hit
+    public void intersect(double ox, double oy, double dx, double dy, RayHit hit) {
+        if (single != null) {
+            single.intersect(ox, oy, dx, dy, hit);
+            return;
+        }
+        if (minColumn > maxColumn) {
+            return;
+        }
+        double minX = minColumn * chunkSize, maxX = (maxColumn + 1) * chunkSize;
+        double minY = minRow * chunkSize, maxY = (maxRow + 1) * chunkSize;
+        double tEnter = 0, tExit = hit.getDistance();
+        if (dx == 0) {
+            if (ox < minX || ox > maxX) {
+                return;
+            }
+        } else {
+            double t1 = (minX - ox) / dx, t2 = (maxX - ox) / dx;
+            tEnter = Math.max(tEnter, Math.min(t1, t2));
+            tExit = Math.min(tExit, Math.max(t1, t2));
+        }
+        if (dy == 0) {
+            if (oy < minY || oy > maxY) {
+                return;
+            }
+        } else {
+            double t1 = (minY - oy) / dy, t2 = (maxY - oy) / dy;
+            tEnter = Math.max(tEnter, Math.min(t1, t2));
+            tExit = Math.min(tExit, Math.max(t1, t2));
+        }
+        if (tEnter > tExit) {
+            return;
+        }
+
+        int column = Math.max(minColumn, Math.min(maxColumn, column(ox + dx * tEnter)));
+        int row = Math.max(minRow, Math.min(maxRow, row(oy + dy * tEnter)));
+        int stepX = dx > 0 ? 1 : -1, stepY = dy > 0 ? 1 : -1;
+        double tDeltaX = dx == 0 ? Double.MAX_VALUE : chunkSize / Math.abs(dx);
+        double tDeltaY = dy == 0 ? Double.MAX_VALUE : chunkSize / Math.abs(dy);
+        double tMaxX = dx == 0 ? Double.MAX_VALUE : ((column + (dx > 0 ? 1 : 0)) * chunkSize - ox) / dx;
+        double tMaxY = dy == 0 ? Double.MAX_VALUE : ((row + (dy > 0 ? 1 : 0)) * chunkSize - oy) / dy;
+        while (true) {
+            SpatialGrid grid = getChunk(column, row);
+            if (grid != null) {
+                grid.intersect(ox, oy, dx, dy, hit);
+            }
+            double tChunk = Math.min(tMaxX, tMaxY);
+            if (hit.getDistance() <= tChunk || tChunk >= tExit) {
+                return;
+            }
+            if (tMaxX < tMaxY) {
+                column += stepX;
+                tMaxX += tDeltaX;
+            } else {
+                row += stepY;
+                tMaxY += tDeltaY;
+            }
+            if (column < minColumn || column > maxColumn || row < minRow || row > maxRow) {
+                return;
+            }
+        }
+    }
+
+    //intersect for drawing, limited to the potentially visible set of the origin's cell; only a map served as a single
+    //chunk has one, streamed chunks are tested in full
+    public void intersectVisible(double ox, double oy, double dx, double dy, RayHit hit) {
+        if (single != null) {
+            single.intersectVisible(ox, oy, dx, dy, hit);
+        } else {
+            intersect(ox, oy, dx, dy, hit);
+        }
+    }
+
+    //the only resident chunk, or null when there are none or several
+    public SpatialGrid getSingle() {
+        return single;
+    }
+
+    public double getChunkSize() {
+        return chunkSize;
+    }
+
+    //the most items any one chunk holds, for per-chunk scratch arrays
+    public int getMaxItemCount() {
+        return maxItemCount;
+    }
+}
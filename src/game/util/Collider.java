@@ -0,0 +1,182 @@
+package game.util;
+
+import java.util.Arrays;
+
+//moves circles through the static grid and other circular bodies, sliding along whatever they touch;
+//keeps per-query scratch state, so every simulating thread needs its own instance
+public class Collider {
+    private static final int ITERATIONS = 3;
+    private static final double NO_CONTACT = Double.MAX_VALUE;
+    private ChunkGrid grid;
+    private int[] marks = new int[0];
+    private int mark;
+    private double contactTime;
+    private double normalX;
+    private double normalY;
+
+    public Collider(ChunkGrid grid) {
+        setGrid(grid);
+    }
+
+    //the static geometry to collide with from now on
+    public void setGrid(ChunkGrid grid) {
+        this.grid = grid;
+        if (marks.length < grid.getMaxItemCount()) {
+            marks = new int[grid.getMaxItemCount()];
+        }
+    }
+
+    //pos is moved in place by (dx, dy), bodies are other circles packed as [x, y, r]
+    public void move(double[] pos, double dx, double dy, double radius, double[] bodies, int bodyCount) {
+        move(pos, dx, dy, radius, bodies, bodyCount, -1);
+    }
+
+    //same, ignoring the body with index skip so the mover can stay in a shared array
+    public void move(double[] pos, double dx, double dy, double radius, double[] bodies, int bodyCount, int skip) {
+        for (int i = 0; i < ITERATIONS && (dx != 0 || dy != 0); i++) {
+            contactTime = NO_CONTACT;
+            sweepStatic(pos[0], pos[1], dx, dy, radius);
+            for (int k = 0; k < 3 * bodyCount; k += 3) {
+                if (k == 3 * skip) {
+                    continue;
+                }
+                sweepCircle(pos[0], pos[1], dx, dy, bodies[k], bodies[k + 1], bodies[k + 2] + radius);
+            }
+            if (contactTime == NO_CONTACT) {
+                pos[0] += dx;
+                pos[1] += dy;
+                return;
+            }
+            //stop just short of the contact and slide the rest of the way along it
+            double t = Math.max(0, contactTime - MathUtils.EPS / Math.hypot(dx, dy));
+            pos[0] += dx * t;
+            pos[1] += dy * t;
+            dx *= 1 - t;
+            dy *= 1 - t;
+            double into = dx * normalX + dy * normalY;
+            dx -= into * normalX;
+            dy -= into * normalY;
+        }
+    }
+
+    private void sweepStatic(double ox, double oy, double dx, double dy, double radius) {
+        double fromX = Math.min(ox, ox + dx) - radius, toX = Math.max(ox, ox + dx) + radius;
+        double fromY = Math.min(oy, oy + dy) - radius, toY = Math.max(oy, oy + dy) + radius;
+        if (grid.getSingle() != null) {
+            sweepChunk(grid.getSingle(), ox, oy, dx, dy, radius, fromX, fromY, toX, toY);
+            return;
+        }
+        for (int chunkRow = grid.row(fromY); chunkRow <= grid.row(toY); chunkRow++) {
+            for (int chunkColumn = grid.column(fromX); chunkColumn <= grid.column(toX); chunkColumn++) {
+                SpatialGrid chunk = grid.getChunk(chunkColumn, chunkRow);
+                if (chunk != null) {
+                    sweepChunk(chunk, ox, oy, dx, dy, radius, fromX, fromY, toX, toY);
+                }
+            }
+        }
+    }
+
+    //an item shared with a neighbouring chunk is swept again there, which finds the same contact
+    private void sweepChunk(
+        SpatialGrid chunk,
+        double ox,
+        double oy,
+        double dx,
+        double dy,
+        double radius,
+        double fromX,
+        double fromY,
+        double toX,
+        double toY
+    ) {
+        if (++mark == Integer.MAX_VALUE) {
+            Arrays.fill(marks, 0);
+            mark = 1;
+        }
+        double[] walls = chunk.getWalls(), circles = chunk.getCircles();
+        int wallCount = chunk.getWallCount();
+        for (int row = chunk.row(fromY); row <= chunk.row(toY); row++) {
+            for (int column = chunk.column(fromX); column <= chunk.column(toX); column++) {
+                for (int item : chunk.getCell(column, row)) {
+                    if (marks[item] == mark) {
+                        continue;
+                    }
+                    marks[item] = mark;
+                    if (item < wallCount) {
+                        int k = 4 * item;
+                        sweepSegment(ox, oy, dx, dy, walls[k], walls[k + 1], walls[k + 2], walls[k + 3], radius);
+                    } else {
+                        int k = 3 * (item - wallCount);
+                        sweepCircle(ox, oy, dx, dy, circles[k], circles[k + 1], circles[k + 2] + radius);
+                    }
+                }
+            }
+        }
+    }
+
+    //a circle against a segment is a point against the segment grown by the radius: two sides and two round caps
+    private void sweepSegment(
+        double ox,
+        double oy,
+        double dx,
+        double dy,
+        double ax,
+        double ay,
+        double bx,
+        double by,
+        double radius
+    ) {
+        double ex = bx - ax, ey = by - ay;
+        double length = Math.hypot(ex, ey);
+        if (length > 0) {
+            double nx = -ey / length, ny = ex / length;
+            double distance = (ox - ax) * nx + (oy - ay) * ny;
+            if (distance < 0) {
+                nx = -nx;
+                ny = -ny;
+                distance = -distance;
+            }
+            double approach = dx * nx + dy * ny;
+            if (approach < 0) {
+                double t = Math.max(0, (distance - radius) / -approach);
+                double s = ((ox + dx * t - ax) * ex + (oy + dy * t - ay) * ey) / (length * length);
+                if (s >= 0 && s <= 1) {
+                    contact(t, nx, ny);
+                }
+            }
+        }
+        sweepCircle(ox, oy, dx, dy, ax, ay, radius);
+        sweepCircle(ox, oy, dx, dy, bx, by, radius);
+    }
+
+    //moving away from a circle is always allowed, so overlapping bodies can separate
+    private void sweepCircle(double ox, double oy, double dx, double dy, double cx, double cy, double radius) {
+        double wx = ox - cx, wy = oy - cy;
+        double b = wx * dx + wy * dy;
+        if (b >= 0) {
+            return;
+        }
+        double c = wx * wx + wy * wy - radius * radius;
+        if (c <= 0) {
+            contact(0, wx, wy);
+            return;
+        }
+        double a = dx * dx + dy * dy;
+        double discriminant = b * b - a * c;
+        if (discriminant < 0) {
+            return;
+        }
+        double t = (-b - Math.sqrt(discriminant)) / a;
+        contact(t, wx + dx * t, wy + dy * t);
+    }
+
+    private void contact(double t, double nx, double ny) {
+        if (t > 1 || t >= contactTime) {
+            return;
+        }
+        double length = Math.hypot(nx, ny);
+        contactTime = t;
+        normalX = nx / length;
+        normalY = ny / length;
+    }
+}
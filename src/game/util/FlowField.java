@@ -0,0 +1,91 @@
+package game.util;
+
+import java.util.Arrays;
+
+//breadth-first distances to one target cell over a NavGrid and the direction to walk from every cell,
+//rebuilt only when the target moves to another cell so any number of followers read it in O(1)
+public class FlowField {
+    private static final int UNREACHABLE = Integer.MAX_VALUE;
+    private static final int[] COLUMN_STEPS = {1, -1, 0, 0, 1, -1, 1, -1};
+    private static final int[] ROW_STEPS = {0, 0, 1, -1, 1, -1, -1, 1};
+    private static final double[] ANGLES = new double[COLUMN_STEPS.length];
+    private static final byte NONE = -1;
+    //a body keeps its radius from the walls but a cell only counts as walkable with that much room at its centre,
+    //so whoever stands by a wall may be in a blocked cell with the closest walkable one a couple of cells away
+    private static final int REACH = 3;
+    private final NavGrid grid;
+    private final int[] distances;
+    //index into the step tables of the neighbour one step closer to the target, opposite steps differ in the last bit
+    private final byte[] directions;
+    private final int[] queue;
+    private int target = -1;
+
+    static {
+        for (int i = 0; i < ANGLES.length; i++) {
+            ANGLES[i] = Math.atan2(ROW_STEPS[i], COLUMN_STEPS[i]);
+        }
+    }
+
+    public FlowField(NavGrid grid) {
+        this.grid = grid;
+        distances = new int[grid.getColumns() * grid.getRows()];
+        directions = new byte[distances.length];
+        queue = new int[distances.length];
+        Arrays.fill(directions, NONE);
+    }
+
+    //target is a NavGrid cell, returns whether the field had to be rebuilt
+    public boolean update(int target) {
+        if (target == this.target) {
+            return false;
+        }
+        this.target = target;
+        Arrays.fill(distances, UNREACHABLE);
+        Arrays.fill(directions, NONE);
+        int start = grid.nearestWalkable(target, REACH);
+        if (start < 0) {
+            return true;
+        }
+        //a cell first reached from another one points back at it, which is a shortest way to the target
+        int head = 0, tail = 0;
+        distances[start] = 0;
+        queue[tail++] = start;
+        while (head < tail) {
+            int cell = queue[head++];
+            for (int i = 0; i < COLUMN_STEPS.length; i++) {
+                int next = step(cell, i);
+                if (next >= 0 && distances[next] == UNREACHABLE) {
+                    distances[next] = distances[cell] + 1;
+                    directions[next] = (byte) (i ^ 1);
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return true;
+    }
+
+    //walkable neighbour in the given direction, diagonals may not cut a blocked corner; -1 when there is none
+    private int step(int cell, int direction) {
+        int columns = grid.getColumns();
+        int column = cell % columns + COLUMN_STEPS[direction], row = cell / columns + ROW_STEPS[direction];
+        if (column < 0 || column >= columns || row < 0 || row >= grid.getRows()) {
+            return -1;
+        }
+        int next = row * columns + column;
+        if (!grid.isWalkable(next)) {
+            return -1;
+        }
+        if (direction >= 4 && (!grid.isWalkable(row * columns + cell % columns) ||
+            !grid.isWalkable(cell / columns * columns + column))) {
+            return -1;
+        }
+        return next;
+    }
+
+    //absolute angle to walk from the cell, NaN at the target, outside the field or where it cannot be reached,
+    //a blocked cell next to a wall walks the way of the closest walkable one
+    public double getDirection(int cell) {
+        cell = grid.nearestWalkable(cell, REACH);
+        return cell < 0 || directions[cell] == NONE ? Double.NaN : ANGLES[directions[cell]];
+    }
+}
@@ -0,0 +1,95 @@
+package game.util;
+
+//allocation-free ray kernel, rays are origin + t * direction with a unit direction so t is the distance
+public class Geometry {
+    public static final double MISS = Double.POSITIVE_INFINITY;
+    private static final double PARALLEL_EPS = 1e-12;
+    private static final double EDGE_EPS = 1e-9;
+
+    public static double raySegment(
+        double ox,
+        double oy,
+        double dx,
+        double dy,
+        double ax,
+        double ay,
+        double bx,
+        double by
+    ) {
+        double ex = bx - ax, ey = by - ay;
+        double denominator = dx * ey - dy * ex;
+        if (Math.abs(denominator) < PARALLEL_EPS) {
+            return MISS;
+        }
+        double wx = ax - ox, wy = ay - oy;
+        double t = (wx * ey - wy * ex) / denominator;
+        double s = (wx * dy - wy * dx) / denominator;
+        if (t < 0 || s < -EDGE_EPS || s > 1 + EDGE_EPS) {
+            return MISS;
+        }
+        return t;
+    }
+
+    public static double rayCircle(
+        double ox,
+        double oy,
+        double dx,
+        double dy,
+        double cx,
+        double cy,
+        double r
+    ) {
+        double wx = ox - cx, wy = oy - cy;
+        double b = wx * dx + wy * dy;
+        double c = wx * wx + wy * wy - r * r;
+        double discriminant = b * b - c;
+        if (discriminant < 0) {
+            return MISS;
+        }
+        double root = Math.sqrt(discriminant);
+        double t = -b - root;
+        if (t >= 0) {
+            return t;
+        }
+        t = -b + root;
+        return t >= 0 ? t : MISS;
+    }
+
+    //returns the index of the closest wall in packed [x1, y1, x2, y2] quadruples, the distance goes to hit
+    public static int nearestWall(
+        double ox,
+        double oy,
+        double dx,
+        double dy,
+        double[] walls,
+        int from,
+        int to,
+        RayHit hit
+    ) {
+        int nearest = -1;
+        for (int i = from; i < to; i++) {
+            int k = 4 * i;
+            double t = raySegment(ox, oy, dx, dy, walls[k], walls[k + 1], walls[k + 2], walls[k + 3]);
+            if (t < hit.getDistance()) {
+                hit.setDistance(t);
+                nearest = i;
+            }
+        }
+        return nearest;
+    }
+
+    //position of the closest point of segment ab to p, clamped to [0, 1]
+    public static double segmentParameter(double px, double py, double ax, double ay, double bx, double by) {
+        double ex = bx - ax, ey = by - ay;
+        double lengthSquared = ex * ex + ey * ey;
+        if (lengthSquared == 0) {
+            return 0;
+        }
+        return Math.max(0, Math.min(1, ((px - ax) * ex + (py - ay) * ey) / lengthSquared));
+    }
+
+    public static double segmentDistance(double px, double py, double ax, double ay, double bx, double by) {
+        double s = segmentParameter(px, py, ax, ay, bx, by);
+        return Math.hypot(ax + (bx - ax) * s - px, ay + (by - ay) * s - py);
+    }
+}
@@ -0,0 +1,106 @@
+package game.util;
+
+//walkability raster of the static map over a rectangle of the world,
+//a cell is walkable when a circle of the given radius at its centre touches no wall and no circle
+public class NavGrid {
+    public static final double CELL_SIZE = 5;
+    private final double minX;
+    private final double minY;
+    private final int columns;
+    private final int rows;
+    private final boolean[] walkable;
+
+    public NavGrid(ChunkGrid grid, double minX, double minY, double width, double height, double radius) {
+        this.minX = minX;
+        this.minY = minY;
+        columns = (int) Math.ceil(width / CELL_SIZE);
+        rows = (int) Math.ceil(height / CELL_SIZE);
+        walkable = new boolean[columns * rows];
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                double x = minX + (column + 0.5) * CELL_SIZE, y = minY + (row + 0.5) * CELL_SIZE;
+                boolean free = true;
+                for (int chunkRow = grid.row(y - radius); free && chunkRow <= grid.row(y + radius); chunkRow++) {
+                    int toColumn = grid.column(x + radius);
+                    for (int chunkColumn = grid.column(x - radius); free && chunkColumn <= toColumn; chunkColumn++) {
+                        SpatialGrid chunk = grid.getChunk(chunkColumn, chunkRow);
+                        free = chunk == null || isFree(chunk, x, y, radius);
+                    }
+                }
+                walkable[row * columns + column] = free;
+            }
+        }
+    }
+
+    //only the index cells the circle overlaps, an item in several of them is just tested again
+    private static boolean isFree(SpatialGrid grid, double x, double y, double radius) {
+        double[] walls = grid.getWalls(), circles = grid.getCircles();
+        int wallCount = grid.getWallCount();
+        for (int row = grid.row(y - radius); row <= grid.row(y + radius); row++) {
+            for (int column = grid.column(x - radius); column <= grid.column(x + radius); column++) {
+                for (int item : grid.getCell(column, row)) {
+                    if (item < wallCount) {
+                        int k = 4 * item;
+                        if (Geometry.segmentDistance(x, y, walls[k], walls[k + 1], walls[k + 2], walls[k + 3]) <=
+                            radius) {
+                            return false;
+                        }
+                    } else {
+                        int k = 3 * (item - wallCount);
+                        if (Math.hypot(x - circles[k], y - circles[k + 1]) <= circles[k + 2] + radius) {
+                            return false;
+                        }
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    //-1 outside the raster
+    public int cell(double x, double y) {
+        int column = (int) Math.floor((x - minX) / CELL_SIZE), row = (int) Math.floor((y - minY) / CELL_SIZE);
+        if (column < 0 || column >= columns || row < 0 || row >= rows) {
+            return -1;
+        }
+        return row * columns + column;
+    }
+
+    public boolean isWalkable(int cell) {
+        return cell >= 0 && walkable[cell];
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    //the cell itself when walkable, else the closest walkable one at most reach cells away on either axis, else -1
+    public int nearestWalkable(int cell, int reach) {
+        if (cell < 0 || walkable[cell]) {
+            return cell;
+        }
+        int column = cell % columns, row = cell / columns;
+        for (int ring = 1; ring <= reach; ring++) {
+            int best = -1, bestDistance = Integer.MAX_VALUE;
+            for (int r = Math.max(0, row - ring); r <= Math.min(rows - 1, row + ring); r++) {
+                //only the border of the square, the inside was searched by the smaller rings
+                int step = Math.abs(r - row) == ring ? 1 : 2 * ring;
+                for (int c = column - ring; c <= column + ring; c += step) {
+                    int distance = (c - column) * (c - column) + (r - row) * (r - row);
+                    if (c >= 0 && c < columns && walkable[r * columns + c] && distance < bestDistance) {
+                        best = r * columns + c;
+                        bestDistance = distance;
+                    }
+                }
+            }
+            if (best >= 0) {
+                return best;
+            }
+        }
+        return -1;
+    }
+}
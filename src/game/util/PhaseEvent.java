@@ -0,0 +1,23 @@
+package game.util;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+@Name("game.Phase")
+@Label("Frame Phase")
+@Category("Shooter")
+class PhaseEvent extends Event {
+    @Label("Phase")
+    private String phase;
+    @Label("Time")
+    @Timespan
+    private long nanos;
+
+    PhaseEvent(String phase, long nanos) {
+        this.phase = phase;
+        this.nanos = nanos;
+    }
+}
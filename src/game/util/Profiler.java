@@ -0,0 +1,152 @@
+package game.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+
+//per-phase timers, off unless the overlay is shown, -Dshooter.profile=true is set or a JFR recording runs
+public class Profiler {
+    public enum Phase {
+        UPDATE_LINES("updateLines"),
+        COLUMNS("columns"),
+        SPRITES("sprites"),
+        BOTS_HP("drawBotsHP"),
+        MAP("drawMap"),
+        HUD("drawHud"),
+        BOT_TICK("bot tick");
+
+        private final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private static final Histogram[] histograms = new Histogram[Phase.values().length];
+    private static volatile boolean enabled;
+    private static volatile boolean overlay;
+    private static volatile boolean recording;
+    private static final boolean profiling = Boolean.getBoolean("shooter.profile");
+
+    static {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new Histogram();
+        }
+        if (FlightRecorder.isAvailable()) {
+            FlightRecorder.addListener(new FlightRecorderListener() {
+                @Override
+                public void recordingStateChanged(Recording changed) {
+                    checkRecordings();
+                }
+            });
+            if (FlightRecorder.isInitialized()) {
+                checkRecordings();
+            }
+        }
+        update();
+        Runtime.getRuntime().addShutdownHook(new Thread(Profiler::dump, "profiler-dump"));
+    }
+
+    private static void checkRecordings() {
+        recording = FlightRecorder.getFlightRecorder().getRecordings().stream()
+            .anyMatch(r -> r.getState() == RecordingState.RUNNING);
+        update();
+    }
+
+    private static void update() {
+        enabled = profiling || overlay || recording;
+    }
+
+    //returns 0 when timing is off, pass the result to stop
+    public static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    public static void stop(Phase phase, long start) {
+        if (start == 0) {
+            return;
+        }
+        long nanos = System.nanoTime() - start;
+        histograms[phase.ordinal()].record(nanos);
+        if (recording) {
+            PhaseEvent event = new PhaseEvent(phase.getLabel(), nanos);
+            if (event.shouldCommit()) {
+                event.commit();
+            }
+        }
+    }
+
+    public static boolean isOverlay() {
+        return overlay;
+    }
+
+    public static void toggleOverlay() {
+        overlay = !overlay;
+        update();
+    }
+
+    //one line per phase: label, p50, p99 and max in microseconds over the recent samples
+    public static String[] getSummary() {
+        String[] lines = new String[histograms.length];
+        for (Phase phase : Phase.values()) {
+            long[] samples = histograms[phase.ordinal()].snapshot();
+            if (samples.length == 0) {
+                lines[phase.ordinal()] = String.format("%-12s -", phase.getLabel());
+                continue;
+            }
+            Arrays.sort(samples);
+            lines[phase.ordinal()] = String.format(
+                "%-12s p50 %8.1f us  p99 %8.1f us  max %8.1f us",
+                phase.getLabel(),
+                samples[samples.length / 2] / 1e3,
+                samples[Math.min(samples.length - 1, (int) (samples.length * 0.99))] / 1e3,
+                samples[samples.length - 1] / 1e3
+            );
+        }
+        return lines;
+    }
+
+    private static void dump() {
+        boolean sampled = false;
+        for (Histogram histogram : histograms) {
+            sampled |= histogram.getCount() > 0;
+        }
+        if (!sampled) {
+            return;
+        }
+        try {
+            Files.write(Path.of(System.getProperty("shooter.profileFile", "profile.txt")), Arrays.asList(getSummary()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    //ring of the most recent samples, one writer per phase but the overlay reads from another thread
+    private static class Histogram {
+        private static final int SAMPLES = 1024;
+        private final long[] samples = new long[SAMPLES];
+        private long count;
+
+        private synchronized void record(long nanos) {
+            samples[(int) (count++ % SAMPLES)] = nanos;
+        }
+
+        private synchronized long[] snapshot() {
+            return Arrays.copyOf(samples, (int) Math.min(count, SAMPLES));
+        }
+
+        private synchronized long getCount() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,380 @@
+package game.util;
+
+import game.figure.Point;
+import java.util.List;
+
+//potentially visible set of every cell of a SpatialGrid: the walls and circles a ray from somewhere in the cell may
+//hit first, as one bit per item id. conservative: an item is left out only when every part of it is hidden from every
+//part of the cell by some single figure standing in between, so no ray from the cell reaches it
+public class PvsGrid {
+    private final double minX;
+    private final double minY;
+    private final int columns;
+    private final int rows;
+    private final int words;
+    private final long[] sets;
+
+    //decides every cell and item on the spot, only figures crossing the line between the two are tried as the cover
+    public PvsGrid(SpatialGrid grid) {
+        this(grid, new long[grid.getColumns() * grid.getRows() * words(grid)]);
+        Occlusion occlusion = new Occlusion(grid);
+        int items = grid.getWallCount() + grid.getCircleCount();
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                int offset = (row * columns + column) * words;
+                occlusion.setCell(minX + column * SpatialGrid.CELL_SIZE, minY + row * SpatialGrid.CELL_SIZE);
+                for (int item = 0; item < items; item++) {
+                    if (!occlusion.isHidden(item)) {
+                        sets[offset + (item >>> 6)] |= 1L << item;
+                    }
+                }
+            }
+        }
+    }
+
+    //sets computed earlier, see GameMap
+    public PvsGrid(SpatialGrid grid, long[] sets) {
+        minX = grid.getMinX();
+        minY = grid.getMinY();
+        columns = grid.getColumns();
+        rows = grid.getRows();
+        words = words(grid);
+        this.sets = sets;
+    }
+
+    private static int words(SpatialGrid grid) {
+        return (grid.getWallCount() + grid.getCircleCount() + 63) >>> 6;
+    }
+
+    //the cell a viewer at (x, y) is in, -1 outside the grid where nothing is known
+    public int cell(double x, double y) {
+        int column = (int) Math.floor((x - minX) / SpatialGrid.CELL_SIZE);
+        int row = (int) Math.floor((y - minY) / SpatialGrid.CELL_SIZE);
+        if (column < 0 || column >= columns || row < 0 || row >= rows) {
+            return -1;
+        }
+        return row * columns + column;
+    }
+
+    //the first item from the given one on that is visible from the cell, -1 when there are no more;
+    //item ids as in SpatialGrid, walls first and then circles
+    public int nextVisible(int cell, int item) {
+        int word = item >>> 6;
+        if (word >= words) {
+            return -1;
+        }
+        long bits = sets[cell * words + word] & -1L << item;
+        while (bits == 0) {
+            if (++word == words) {
+                return -1;
+            }
+            bits = sets[cell * words + word];
+        }
+        return word << 6 | Long.numberOfTrailingZeros(bits);
+    }
+
+    //the sets one after another, getWords() longs per cell
+    public long[] getSets() {
+        return sets;
+    }
+
+    public int getWords() {
+        return words;
+    }
+
+    //one figure hides an item from a whole cell when every segment from a corner of the cell to an end of the item
+    //passes through it: the points whose segment to a fixed point passes through a convex figure form a convex set,
+    //so the corners being in it puts the whole cell in it, and the same goes the other way round for the item.
+    //a convex polygon or a circle is solid only for a cell that does not reach into it, otherwise a viewer inside
+    //looks out through it and only its single walls can hide something
+    private static class Occlusion {
+        //along a segment, a crossing this close to either end does not count, so rounding only ever keeps an item
+        private static final double MARGIN = 1e-7;
+        private static final int SPLITS = 6;
+        private final SpatialGrid grid;
+        private final double[] walls;
+        private final double[] circles;
+        private final int wallCount;
+        //per wall, the orientation of its polygon when that is convex, 0 when it is not
+        private final int[] orientations;
+        //figures already tried for the current item, stamped so the marks need no clearing
+        private final int[] polygonStamps;
+        private final int[] wallStamps;
+        private final int[] circleStamps;
+        private final double[] cornerX = new double[4];
+        private final double[] cornerY = new double[4];
+        private final double[] pointX = new double[4];
+        private final double[] pointY = new double[4];
+        private int pointCount;
+        private int stamp;
+        private double cellX;
+        private double cellY;
+
+        private Occlusion(SpatialGrid grid) {
+            this.grid = grid;
+            walls = grid.getWalls();
+            circles = grid.getCircles();
+            wallCount = grid.getWallCount();
+            orientations = new int[wallCount];
+            for (int wall = 0; wall < wallCount; wall += grid.getPolygon(wall).points().size()) {
+                int orientation = orientation(grid.getPolygon(wall).points());
+                for (int side = 0; side < grid.getPolygon(wall).points().size(); side++) {
+                    orientations[wall + side] = orientation;
+                }
+            }
+            polygonStamps = new int[wallCount];
+            wallStamps = new int[wallCount];
+            circleStamps = new int[grid.getCircleCount()];
+        }
+
+        //1 counterclockwise, -1 clockwise, 0 when the polygon is not convex
+        private static int orientation(List<Point> points) {
+            int sign = 0;
+            for (int i = 0; i < points.size(); i++) {
+                Point a = points.get(i), b = points.get((i + 1) % points.size());
+                Point c = points.get((i + 2) % points.size());
+                double cross = (b.x() - a.x()) * (c.y() - b.y()) - (b.y() - a.y()) * (c.x() - b.x());
+                if (cross != 0) {
+                    if (sign != 0 && (cross > 0) != (sign > 0)) {
+                        return 0;
+                    }
+                    sign = cross > 0 ? 1 : -1;
+                }
+            }
+            return sign;
+        }
+
+        private void setCell(double x, double y) {
+            cellX = x;
+            cellY = y;
+        }
+
+        private boolean isHidden(int item) {
+            double size = SpatialGrid.CELL_SIZE;
+            if (item < wallCount) {
+                int k = 4 * item;
+                double x1 = walls[k], y1 = walls[k + 1], x2 = walls[k + 2], y2 = walls[k + 3];
+                return isHidden(item, cellX, cellY, cellX + size, cellY + size, x1, y1, x2, y2, true, SPLITS);
+            }
+            //the square around the circle, hiding it hides the circle
+            int k = 3 * (item - wallCount);
+            double x = circles[k], y = circles[k + 1], r = circles[k + 2];
+            return isHidden(item, cellX, cellY, cellX + size, cellY + size, x - r, y - r, x + r, y + r, false, SPLITS);
+        }
+
+        //the part of the cell within the first box against the part of the item that is the segment between the
+        //two points or the second box; when no single figure hides them, the larger of the two is halved and both
+        //halves have to be hidden, which lets walls meeting at a corner hide what neither of them hides alone
+        private boolean isHidden(
+            int item,
+            double fromX,
+            double fromY,
+            double toX,
+            double toY,
+            double x1,
+            double y1,
+            double x2,
+            double y2,
+            boolean segment,
+            int splits
+        ) {
+            for (int k = 0; k < 4; k++) {
+                cornerX[k] = k % 2 == 0 ? fromX : toX;
+                cornerY[k] = k < 2 ? fromY : toY;
+            }
+            if (segment) {
+                pointX[0] = x1;
+                pointY[0] = y1;
+                pointX[1] = x2;
+                pointY[1] = y2;
+                pointCount = 2;
+            } else {
+                for (int i = 0; i < 4; i++) {
+                    pointX[i] = i % 2 == 0 ? x1 : x2;
+                    pointY[i] = i < 2 ? y1 : y2;
+                }
+                pointCount = 4;
+            }
+            if (isHiddenByOne(item, (fromX + toX) / 2, (fromY + toY) / 2, (x1 + x2) / 2, (y1 + y2) / 2)) {
+                return true;
+            }
+            if (splits == 0) {
+                return false;
+            }
+            double cellSize = Math.max(toX - fromX, toY - fromY);
+            double itemSize = segment ? Math.hypot(x2 - x1, y2 - y1) : Math.max(x2 - x1, y2 - y1);
+            if (cellSize >= itemSize) {
+                if (toX - fromX >= toY - fromY) {
+                    double middle = (fromX + toX) / 2;
+                    return isHidden(item, fromX, fromY, middle, toY, x1, y1, x2, y2, segment, splits - 1) &&
+                        isHidden(item, middle, fromY, toX, toY, x1, y1, x2, y2, segment, splits - 1);
+                }
+                double middle = (fromY + toY) / 2;
+                return isHidden(item, fromX, fromY, toX, middle, x1, y1, x2, y2, segment, splits - 1) &&
+                    isHidden(item, fromX, middle, toX, toY, x1, y1, x2, y2, segment, splits - 1);
+            }
+            if (segment) {
+                double middleX = (x1 + x2) / 2, middleY = (y1 + y2) / 2;
+                return isHidden(item, fromX, fromY, toX, toY, x1, y1, middleX, middleY, true, splits - 1) &&
+                    isHidden(item, fromX, fromY, toX, toY, middleX, middleY, x2, y2, true, splits - 1);
+            }
+            if (x2 - x1 >= y2 - y1) {
+                double middle = (x1 + x2) / 2;
+                return isHidden(item, fromX, fromY, toX, toY, x1, y1, middle, y2, false, splits - 1) &&
+                    isHidden(item, fromX, fromY, toX, toY, middle, y1, x2, y2, false, splits - 1);
+            }
+            double middle = (y1 + y2) / 2;
+            return isHidden(item, fromX, fromY, toX, toY, x1, y1, x2, middle, false, splits - 1) &&
+                isHidden(item, fromX, fromY, toX, toY, x1, middle, x2, y2, false, splits - 1);
+        }
+
+        //a figure that hides the corners from the points crosses the segment between the middles of the two, so only
+        //the grid cells along it are searched, nearest first
+        private boolean isHiddenByOne(int item, double fromX, double fromY, double toX, double toY) {
+            stamp++;
+            double length = Math.hypot(toX - fromX, toY - fromY);
+            int steps = (int) Math.ceil(length / (SpatialGrid.CELL_SIZE / 4)) + 1;
+            int lastColumn = -1, lastRow = -1;
+            for (int i = 0; i <= steps; i++) {
+                double x = fromX + (toX - fromX) * i / steps, y = fromY + (toY - fromY) * i / steps;
+                int column = grid.column(x), row = grid.row(y);
+                if (column == lastColumn && row == lastRow) {
+                    continue;
+                }
+                lastColumn = column;
+                lastRow = row;
+                for (int other : grid.getCell(column, row)) {
+                    if (hides(other, item)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private boolean hides(int other, int item) {
+            if (other >= wallCount) {
+                int circle = other - wallCount;
+                if (other == item || circleStamps[circle] == stamp) {
+                    return false;
+                }
+                circleStamps[circle] = stamp;
+                return isOutsideCircle(circle) && coversAll(-1, -1, circle);
+            }
+            int first = other - grid.getWallSide(other);
+            if (orientations[other] != 0 && isOutsidePolygon(first)) {
+                if (polygonStamps[first] == stamp) {
+                    return false;
+                }
+                polygonStamps[first] = stamp;
+                return coversAll(first, -1, -1);
+            }
+            if (other == item || wallStamps[other] == stamp) {
+                return false;
+            }
+            wallStamps[other] = stamp;
+            return coversAll(-1, other, -1);
+        }
+
+        //whether every segment from a corner to a point of the item passes through the polygon, wall or circle
+        private boolean coversAll(int polygon, int wall, int circle) {
+            for (int k = 0; k < 4; k++) {
+                for (int i = 0; i < pointCount; i++) {
+                    double ax = cornerX[k], ay = cornerY[k], dx = pointX[i] - ax, dy = pointY[i] - ay;
+                    boolean crossed = polygon >= 0 ? crossesPolygon(polygon, ax, ay, dx, dy) :
+                        wall >= 0 ? crossesWall(wall, ax, ay, dx, dy) :
+                        crossesCircle(circle, ax, ay, dx, dy);
+                    if (!crossed) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        //no corner of the cell is inside the convex polygon starting at the given wall: the bounding boxes are
+        //apart or all corners are behind one of its sides
+        private boolean isOutsidePolygon(int first) {
+            int count = grid.getPolygon(first).points().size(), orientation = orientations[first];
+            double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+            for (int side = 0; side < count; side++) {
+                int k = 4 * (first + side);
+                minX = Math.min(minX, walls[k]);
+                minY = Math.min(minY, walls[k + 1]);
+                maxX = Math.max(maxX, walls[k]);
+                maxY = Math.max(maxY, walls[k + 1]);
+            }
+            if (minX >= cornerX[3] || maxX <= cornerX[0] || minY >= cornerY[3] || maxY <= cornerY[0]) {
+                return true;
+            }
+            for (int side = 0; side < count; side++) {
+                int k = 4 * (first + side);
+                boolean behind = true;
+                for (int c = 0; c < 4 && behind; c++) {
+                    double cross = (walls[k + 2] - walls[k]) * (cornerY[c] - walls[k + 1]) -
+                        (walls[k + 3] - walls[k + 1]) * (cornerX[c] - walls[k]);
+                    behind = cross * orientation <= 0;
+                }
+                if (behind) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean isOutsideCircle(int circle) {
+            int k = 3 * circle;
+            double x = Math.max(cornerX[0], Math.min(cornerX[3], circles[k]));
+            double y = Math.max(cornerY[0], Math.min(cornerY[3], circles[k + 1]));
+            return Math.hypot(x - circles[k], y - circles[k + 1]) >= circles[k + 2];
+        }
+
+        //a + t * d for t in [0, 1] runs through the inside of the convex polygon for more than a touch, clipped
+        //against every side in turn
+        private boolean crossesPolygon(int first, double ax, double ay, double dx, double dy) {
+            int count = grid.getPolygon(first).points().size(), orientation = orientations[first];
+            double enter = 0, exit = 1;
+            for (int side = 0; side < count; side++) {
+                int k = 4 * (first + side);
+                double ex = walls[k + 2] - walls[k], ey = walls[k + 3] - walls[k + 1];
+                double start = orientation * (ex * (ay - walls[k + 1]) - ey * (ax - walls[k]));
+                double rate = orientation * (ex * dy - ey * dx);
+                if (rate == 0) {
+                    if (start <= 0) {
+                        return false;
+                    }
+                } else if (rate > 0) {
+                    enter = Math.max(enter, -start / rate);
+                } else {
+                    exit = Math.min(exit, -start / rate);
+                }
+            }
+            return exit - enter > MARGIN && enter < 1 - MARGIN;
+        }
+
+        private boolean crossesWall(int wall, double ax, double ay, double dx, double dy) {
+            int k = 4 * wall;
+            double ex = walls[k + 2] - walls[k], ey = walls[k + 3] - walls[k + 1];
+            double denominator = dx * ey - dy * ex;
+            if (denominator == 0) {
+                return false;
+            }
+            double wx = walls[k] - ax, wy = walls[k + 1] - ay;
+            double t = (wx * ey - wy * ex) / denominator, s = (wx * dy - wy * dx) / denominator;
+            return t > MARGIN && t < 1 - MARGIN && s > MARGIN && s < 1 - MARGIN;
+        }
+
+        private boolean crossesCircle(int circle, double ax, double ay, double dx, double dy) {
+            int k = 3 * circle;
+            double wx = ax - circles[k], wy = ay - circles[k + 1];
+            double a = dx * dx + dy * dy, b = wx * dx + wy * dy;
+            double discriminant = b * b - a * (wx * wx + wy * wy - circles[k + 2] * circles[k + 2]);
+            if (discriminant <= 0) {
+                return false;
+            }
+            double root = Math.sqrt(discriminant);
+            double enter = Math.max(0, (-b - root) / a), exit = Math.min(1, (-b + root) / a);
+            return exit - enter > MARGIN && enter < 1 - MARGIN;
+        }
+    }
+}
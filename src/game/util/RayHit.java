@@ -0,0 +1,69 @@
+package game.util;
+
+import game.Player;
+import game.figure.Figure;
+import game.view.Texture;
+
+//mutable result of a ray query, reused between casts so the hot path does not allocate
+public class RayHit {
+    private double distance;
+    private Figure figure;
+    private Player player;
+    private int wall;
+    private Texture texture;
+    private double u;
+
+    public void reset(double maxDistance) {
+        distance = maxDistance;
+        figure = null;
+        player = null;
+        wall = -1;
+        texture = null;
+        u = 0;
+    }
+
+    public void set(double distance, Figure figure, Player player, int wall) {
+        this.distance = distance;
+        this.figure = figure;
+        this.player = player;
+        this.wall = wall;
+    }
+
+    //u is the texture column as a fraction of the texture width, repeating textures wrap around
+    public void setTexture(Texture texture, double u) {
+        this.texture = texture;
+        this.u = u - Math.floor(u);
+    }
+
+    public boolean isHit() {
+        return figure != null || player != null;
+    }
+
+    public double getDistance() {
+        return distance;
+    }
+
+    public void setDistance(double distance) {
+        this.distance = distance;
+    }
+
+    public Figure getFigure() {
+        return figure;
+    }
+
+    public Player getPlayer() {
+        return player;
+    }
+
+    public int getWall() {
+        return wall;
+    }
+
+    public Texture getTexture() {
+        return texture;
+    }
+
+    public double getU() {
+        return u;
+    }
+}
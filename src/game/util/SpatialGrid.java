@@ -0,0 +1,392 @@
+package game.util;
+
+import game.figure.Circle;
+import game.figure.Figure;
+import game.figure.Point;
+import game.figure.Polygon;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+//uniform grid over static figures, rays visit only the cells they cross
+public class SpatialGrid {
+    public static final double CELL_SIZE = 25;
+    private final double[] walls;
+    private final Polygon[] wallPolygons;
+    private final int[] wallSides;
+    private final double[] circles;
+    private final Circle[] circleFigures;
+    private final int wallCount;
+    private final int[][] cells;
+    private final double minX;
+    private final double minY;
+    private final int columns;
+    private final int rows;
+    private final double[] crossings;
+    private PvsGrid pvs;
+
+    public SpatialGrid(List<Figure> figures) {
+        List<Polygon> polygons = new ArrayList<>();
+        List<Circle> circleList = new ArrayList<>();
+        int count = 0;
+        for (Figure figure : figures) {
+            if (figure instanceof Polygon polygon) {
+                polygons.add(polygon);
+                count += polygon.points().size();
+            } else if (figure instanceof Circle circle) {
+                circleList.add(circle);
+            }
+        }
+        wallCount = count;
+        walls = new double[4 * wallCount];
+        wallPolygons = new Polygon[wallCount];
+        wallSides = new int[wallCount];
+        circles = new double[3 * circleList.size()];
+        circleFigures = circleList.toArray(new Circle[0]);
+
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+        int wall = 0;
+        for (Polygon polygon : polygons) {
+            List<Point> points = polygon.points();
+            for (int i = 0; i < points.size(); i++) {
+                Point first = points.get(i);
+                Point second = points.get((i + 1) % points.size());
+                walls[4 * wall] = first.x();
+                walls[4 * wall + 1] = first.y();
+                walls[4 * wall + 2] = second.x();
+                walls[4 * wall + 3] = second.y();
+                wallPolygons[wall] = polygon;
+                wallSides[wall] = i;
+                wall++;
+                minX = Math.min(minX, first.x());
+                minY = Math.min(minY, first.y());
+                maxX = Math.max(maxX, first.x());
+                maxY = Math.max(maxY, first.y());
+            }
+        }
+        for (int i = 0; i < circleFigures.length; i++) {
+            Circle circle = circleFigures[i];
+            circles[3 * i] = circle.center().x();
+            circles[3 * i + 1] = circle.center().y();
+            circles[3 * i + 2] = circle.radius();
+            minX = Math.min(minX, circle.center().x() - circle.radius());
+            minY = Math.min(minY, circle.center().y() - circle.radius());
+            maxX = Math.max(maxX, circle.center().x() + circle.radius());
+            maxY = Math.max(maxY, circle.center().y() + circle.radius());
+        }
+        if (wallCount == 0 && circleFigures.length == 0) {
+            minX = minY = maxX = maxY = 0;
+        }
+        this.minX = minX - MathUtils.EPS;
+        this.minY = minY - MathUtils.EPS;
+        columns = Math.max(1, (int) Math.ceil((maxX + MathUtils.EPS - this.minX) / CELL_SIZE));
+        rows = Math.max(1, (int) Math.ceil((maxY + MathUtils.EPS - this.minY) / CELL_SIZE));
+
+        List<List<Integer>> items = new ArrayList<>();
+        for (int i = 0; i < columns * rows; i++) {
+            items.add(new ArrayList<>());
+        }
+        for (int i = 0; i < wallCount; i++) {
+            addItem(items, i,
+                Math.min(walls[4 * i], walls[4 * i + 2]),
+                Math.min(walls[4 * i + 1], walls[4 * i + 3]),
+                Math.max(walls[4 * i], walls[4 * i + 2]),
+                Math.max(walls[4 * i + 1], walls[4 * i + 3])
+            );
+        }
+        for (int i = 0; i < circleFigures.length; i++) {
+            addItem(items, wallCount + i,
+                circles[3 * i] - circles[3 * i + 2],
+                circles[3 * i + 1] - circles[3 * i + 2],
+                circles[3 * i] + circles[3 * i + 2],
+                circles[3 * i + 1] + circles[3 * i + 2]
+            );
+        }
+        cells = new int[columns * rows][];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = items.get(i).stream().mapToInt(Integer::intValue).toArray();
+        }
+        crossings = findCrossings();
+    }
+
+    //an index built earlier, see GameMap; walls and circles in the order their ids refer to
+    public SpatialGrid(
+        double[] walls,
+        Polygon[] wallPolygons,
+        int[] wallSides,
+        double[] circles,
+        Circle[] circleFigures,
+        double minX,
+        double minY,
+        int columns,
+        int rows,
+        int[][] cells
+    ) {
+        this.walls = walls;
+        this.wallPolygons = wallPolygons;
+        this.wallSides = wallSides;
+        this.circles = circles;
+        this.circleFigures = circleFigures;
+        this.wallCount = wallPolygons.length;
+        this.minX = minX;
+        this.minY = minY;
+        this.columns = columns;
+        this.rows = rows;
+        this.cells = cells;
+        crossings = findCrossings();
+    }
+
+    //figures that cross share a cell, so only the pairs in each cell are tried; the ends of a wall are left out,
+    //where the walls of a polygon meet
+    private double[] findCrossings() {
+        Set<Long> pairs = new HashSet<>();
+        double[] found = new double[0];
+        int count = 0;
+        double[] points = new double[4];
+        for (int[] cell : cells) {
+            for (int i = 0; i < cell.length; i++) {
+                for (int j = i + 1; j < cell.length; j++) {
+                    int first = Math.min(cell[i], cell[j]), second = Math.max(cell[i], cell[j]);
+                    if (!pairs.add((long) first << 32 | second)) {
+                        continue;
+                    }
+                    int crossed = cross(first, second, points);
+                    if (count + 2 * crossed > found.length) {
+                        found = Arrays.copyOf(found, Math.max(16, 2 * found.length));
+                    }
+                    System.arraycopy(points, 0, found, count, 2 * crossed);
+                    count += 2 * crossed;
+                }
+            }
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    //the points where two items cross as [x, y] into points, returns how many there are
+    private int cross(int first, int second, double[] points) {
+        if (second < wallCount) {
+            int a = 4 * first, b = 4 * second;
+            double ex = walls[a + 2] - walls[a], ey = walls[a + 3] - walls[a + 1];
+            double fx = walls[b + 2] - walls[b], fy = walls[b + 3] - walls[b + 1];
+            double denominator = ex * fy - ey * fx;
+            if (denominator == 0) {
+                return 0;
+            }
+            double gx = walls[b] - walls[a], gy = walls[b + 1] - walls[a + 1];
+            double t = (gx * fy - gy * fx) / denominator, s = (gx * ey - gy * ex) / denominator;
+            if (t <= 0 || t >= 1 || s <= 0 || s >= 1) {
+                return 0;
+            }
+            points[0] = walls[a] + ex * t;
+            points[1] = walls[a + 1] + ey * t;
+            return 1;
+        }
+        int c = 3 * (second - wallCount);
+        double cx = circles[c], cy = circles[c + 1], r = circles[c + 2];
+        if (first < wallCount) {
+            int a = 4 * first;
+            double ex = walls[a + 2] - walls[a], ey = walls[a + 3] - walls[a + 1];
+            double gx = walls[a] - cx, gy = walls[a + 1] - cy;
+            double qa = ex * ex + ey * ey, qb = gx * ex + gy * ey, qc = gx * gx + gy * gy - r * r;
+            double discriminant = qb * qb - qa * qc;
+            if (qa == 0 || discriminant < 0) {
+                return 0;
+            }
+            int crossed = 0;
+            for (int sign = -1; sign <= 1; sign += 2) {
+                double t = (-qb + sign * Math.sqrt(discriminant)) / qa;
+                if (t >= 0 && t <= 1) {
+                    points[2 * crossed] = walls[a] + ex * t;
+                    points[2 * crossed + 1] = walls[a + 1] + ey * t;
+                    crossed++;
+                }
+            }
+            return crossed;
+        }
+        int o = 3 * (first - wallCount);
+        double dx = cx - circles[o], dy = cy - circles[o + 1], distance = Math.hypot(dx, dy);
+        double r0 = circles[o + 2];
+        if (distance == 0 || distance > r0 + r || distance < Math.abs(r0 - r)) {
+            return 0;
+        }
+        double along = (r0 * r0 - r * r + distance * distance) / (2 * distance);
+        double across = Math.sqrt(Math.max(0, r0 * r0 - along * along));
+        double mx = circles[o] + dx * along / distance, my = circles[o + 1] + dy * along / distance;
+        points[0] = mx - dy * across / distance;
+        points[1] = my + dx * across / distance;
+        points[2] = mx + dy * across / distance;
+        points[3] = my - dx * across / distance;
+        return 2;
+    }
+
+    private void addItem(List<List<Integer>> items, int item, double x1, double y1, double x2, double y2) {
+        int fromColumn = column(x1 - MathUtils.EPS), toColumn = column(x2 + MathUtils.EPS);
+        int fromRow = row(y1 - MathUtils.EPS), toRow = row(y2 + MathUtils.EPS);
+        for (int row = fromRow; row <= toRow; row++) {
+            for (int column = fromColumn; column <= toColumn; column++) {
+                items.get(row * columns + column).add(item);
+            }
+        }
+    }
+
+    int column(double x) {
+        return Math.max(0, Math.min(columns - 1, (int) Math.floor((x - minX) / CELL_SIZE)));
+    }
+
+    int row(double y) {
+        return Math.max(0, Math.min(rows - 1, (int) Math.floor((y - minY) / CELL_SIZE)));
+    }
+
+    //finds the first static figure along a ray with a unit direction, closer than hit.getDistance()
+    public void intersect(double ox, double oy, double dx, double dy, RayHit hit) {
+        intersect(ox, oy, dx, dy, hit, null, 0);
+    }
+
+    //intersect for drawing, only the potentially visible set of the origin's cell is tested when there is one;
+    //whatever a ray from the cell hits first is in it, so the result is the same
+    public void intersectVisible(double ox, double oy, double dx, double dy, RayHit hit) {
+        int cell = pvs == null ? -1 : pvs.cell(ox, oy);
+        if (cell >= 0) {
+            intersect(ox, oy, dx, dy, hit, pvs.getSets(), cell * pvs.getWords());
+        } else {
+            intersect(ox, oy, dx, dy, hit, null, 0);
+        }
+    }
+
+    private void intersect(double ox, double oy, double dx, double dy, RayHit hit, long[] visible, int offset) {
+        double maxX = minX + columns * CELL_SIZE, maxY = minY + rows * CELL_SIZE;
+
+        //clip the ray to the grid bounds
+        double tEnter = 0, tExit = hit.getDistance();
+        if (dx == 0) {
+            if (ox < minX || ox > maxX) {
+                return;
+            }
+        } else {
+            double t1 = (minX - ox) / dx, t2 = (maxX - ox) / dx;
+            tEnter = Math.max(tEnter, Math.min(t1, t2));
+            tExit = Math.min(tExit, Math.max(t1, t2));
+        }
+        if (dy == 0) {
+            if (oy < minY || oy > maxY) {
+                return;
+            }
+        } else {
+            double t1 = (minY - oy) / dy, t2 = (maxY - oy) / dy;
+            tEnter = Math.max(tEnter, Math.min(t1, t2));
+            tExit = Math.min(tExit, Math.max(t1, t2));
+        }
+        if (tEnter > tExit) {
+            return;
+        }
+
+        int column = column(ox + dx * tEnter), row = row(oy + dy * tEnter);
+        int stepX = dx > 0 ? 1 : -1, stepY = dy > 0 ? 1 : -1;
+        double tDeltaX = dx == 0 ? Double.MAX_VALUE : CELL_SIZE / Math.abs(dx);
+        double tDeltaY = dy == 0 ? Double.MAX_VALUE : CELL_SIZE / Math.abs(dy);
+        double tMaxX = dx == 0 ? Double.MAX_VALUE : (minX + (column + (dx > 0 ? 1 : 0)) * CELL_SIZE - ox) / dx;
+        double tMaxY = dy == 0 ? Double.MAX_VALUE : (minY + (row + (dy > 0 ? 1 : 0)) * CELL_SIZE - oy) / dy;
+
+        while (true) {
+            for (int item : cells[row * columns + column]) {
+                if (visible != null && (visible[offset + (item >>> 6)] & 1L << item) == 0) {
+                    continue;
+                }
+                if (item < wallCount) {
+                    int k = 4 * item;
+                    double t = Geometry.raySegment(ox, oy, dx, dy, walls[k], walls[k + 1], walls[k + 2], walls[k + 3]);
+                    if (t < hit.getDistance()) {
+                        hit.set(t, wallPolygons[item], null, wallSides[item]);
+                    }
+                } else {
+                    int k = 3 * (item - wallCount);
+                    double t = Geometry.rayCircle(ox, oy, dx, dy, circles[k], circles[k + 1], circles[k + 2]);
+                    if (t < hit.getDistance()) {
+                        hit.set(t, circleFigures[item - wallCount], null, -1);
+                    }
+                }
+            }
+            double tCell = Math.min(tMaxX, tMaxY);
+            if (hit.getDistance() <= tCell || tCell >= tExit) {
+                return;
+            }
+            if (tMaxX < tMaxY) {
+                column += stepX;
+                tMaxX += tDeltaX;
+            } else {
+                row += stepY;
+                tMaxY += tDeltaY;
+            }
+            if (column < 0 || column >= columns || row < 0 || row >= rows) {
+                return;
+            }
+        }
+    }
+
+    //item ids in a cell, walls first and then circles offset by getWallCount()
+    public int[] getCell(int column, int row) {
+        return cells[row * columns + column];
+    }
+
+    public double getMinX() {
+        return minX;
+    }
+
+    public double getMinY() {
+        return minY;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public double[] getWalls() {
+        return walls;
+    }
+
+    public int getWallCount() {
+        return wallCount;
+    }
+
+    public Polygon getPolygon(int wall) {
+        return wallPolygons[wall];
+    }
+
+    //which side of its polygon the wall is
+    public int getWallSide(int wall) {
+        return wallSides[wall];
+    }
+
+    public Circle getCircle(int circle) {
+        return circleFigures[circle];
+    }
+
+    public double[] getCircles() {
+        return circles;
+    }
+
+    public int getCircleCount() {
+        return circleFigures.length;
+    }
+
+    //[x, y] of the points where two walls cross inside both, a wall crosses a circle or two circles cross
+    public double[] getCrossings() {
+        return crossings;
+    }
+
+    public PvsGrid getPvs() {
+        return pvs;
+    }
+
+    //set once while the map is loaded, before the grid is shared
+    public void setPvs(PvsGrid pvs) {
+        this.pvs = pvs;
+    }
+}
@@ -1,6 +1,5 @@
 package game.util;
 
-import java.awt.Image;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
@@ -9,17 +8,64 @@ import javax.imageio.ImageIO;
 public class TextureUtils {
     private final static BufferedImage BLANK_IMG = new BufferedImage(16, 16, BufferedImage.TYPE_INT_ARGB);
 
-    public static Image[] getImage(String name) {
-        BufferedImage img = BLANK_IMG;
+    public static BufferedImage readImage(String name) {
         try {
-            img = ImageIO.read(new File("images", name));
+            return ImageIO.read(new File("images", name));
         } catch (IOException e) {
             System.err.println("Error while reading file: " + e);
+            return BLANK_IMG;
         }
-        Image[] image = new Image[img.getWidth()];
-        for (int i = 0; i < image.length; i++) {
-            image[i] = img.getSubimage(Math.min(i, img.getWidth() - 1), 0, 1, img.getHeight());
+    }
+
+    //argb pixels stored column by column, so a wall column is one contiguous run
+    public static int[] getColumns(BufferedImage img) {
+        int width = img.getWidth(), height = img.getHeight();
+        int[] rows = img.getRGB(0, 0, width, height, null, 0, width);
+        int[] columns = new int[width * height];
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                columns[x * height + y] = rows[y * width + x];
+            }
+        }
+        return columns;
+    }
+
+    //box filtered mip chain of column-major pixels, level k is (width >> k) x (height >> k)
+    public static int[][] getMipmaps(int[] columns, int width, int height) {
+        int count = 1;
+        while ((width >> count) > 0 || (height >> count) > 0) {
+            count++;
+        }
+        int[][] levels = new int[count][];
+        levels[0] = columns;
+        for (int level = 1; level < count; level++) {
+            int sourceWidth = Math.max(1, width >> (level - 1)), sourceHeight = Math.max(1, height >> (level - 1));
+            int targetWidth = Math.max(1, width >> level), targetHeight = Math.max(1, height >> level);
+            int[] source = levels[level - 1];
+            int[] target = new int[targetWidth * targetHeight];
+            for (int x = 0; x < targetWidth; x++) {
+                int x0 = Math.min(2 * x, sourceWidth - 1), x1 = Math.min(2 * x + 1, sourceWidth - 1);
+                for (int y = 0; y < targetHeight; y++) {
+                    int y0 = Math.min(2 * y, sourceHeight - 1), y1 = Math.min(2 * y + 1, sourceHeight - 1);
+                    target[x * targetHeight + y] = average(
+                        source[x0 * sourceHeight + y0],
+                        source[x0 * sourceHeight + y1],
+                        source[x1 * sourceHeight + y0],
+                        source[x1 * sourceHeight + y1]
+                    );
+                }
+            }
+            levels[level] = target;
+        }
+        return levels;
+    }
+
+    private static int average(int a, int b, int c, int d) {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 8) {
+            int sum = ((a >>> shift) & 0xFF) + ((b >>> shift) & 0xFF) + ((c >>> shift) & 0xFF) + ((d >>> shift) & 0xFF);
+            result |= ((sum + 2) / 4) << shift;
         }
-        return image;
+        return result;
     }
 }
@@ -1,6 +1,7 @@
 package game.view;
 
 import game.Client;
+import game.util.Profiler;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
 import javax.swing.JFrame;
@@ -20,6 +21,7 @@ public class Frame extends JFrame {
                     case KeyEvent.VK_D -> client.setMoveRight(true);
                     case KeyEvent.VK_S -> client.setMoveBackward(true);
                     case KeyEvent.VK_W -> client.setMoveForward(true);
+                    case KeyEvent.VK_F3 -> Profiler.toggleOverlay();
                 }
             }
 
@@ -0,0 +1,89 @@
+package game.view;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+//software render target, wall columns are written straight into the pixels backing the image. only the first
+//activeWidth columns are drawn, so the frame can be rendered narrower and stretched without a new image
+public class FrameBuffer {
+    private final BufferedImage image;
+    private final int[] pixels;
+    private final int width;
+    private final int height;
+    private int activeWidth;
+
+    public FrameBuffer(int width, int height) {
+        this.width = width;
+        this.height = height;
+        activeWidth = width;
+        image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+
+    public void clear(int ceiling, int floor) {
+        if (activeWidth == width) {
+            int horizon = height / 2 * width;
+            Arrays.fill(pixels, 0, horizon, ceiling);
+            Arrays.fill(pixels, horizon, pixels.length, floor);
+            return;
+        }
+        for (int y = 0; y < height; y++) {
+            Arrays.fill(pixels, y * width, y * width + activeWidth, y < height / 2 ? ceiling : floor);
+        }
+    }
+
+    //draws rows [top, bottom] of column x, darkened by shade in 0..255, texture may be null
+    public void drawColumn(int x, double top, double bottom, Texture texture, double u, int shade) {
+        int from = Math.max(0, (int) Math.ceil(top)), to = Math.min(height - 1, (int) bottom);
+        if (x < 0 || x >= activeWidth || from > to) {
+            return;
+        }
+        int scale = 256 - shade * 256 / 255;
+        if (texture == null) {
+            for (int y = from; y <= to; y++) {
+                pixels[y * width + x] = darken(pixels[y * width + x], scale);
+            }
+            return;
+        }
+        int level = texture.getLevel(bottom - top);
+        int[] texels = texture.getPixels(level);
+        int textureWidth = texture.getWidth(level), textureHeight = texture.getHeight(level);
+        int offset = Math.min(textureWidth - 1, (int) (u * textureWidth)) * textureHeight;
+        double step = textureHeight / (bottom - top);
+        double v = (from - top) * step;
+        for (int y = from; y <= to; y++, v += step) {
+            int texel = texels[offset + Math.min(textureHeight - 1, (int) v)];
+            int index = y * width + x;
+            pixels[index] = darken(texel >>> 24 >= 128 ? texel : pixels[index], scale);
+        }
+    }
+
+    private static int darken(int rgb, int scale) {
+        int r = ((rgb >> 16) & 0xFF) * scale >> 8;
+        int g = ((rgb >> 8) & 0xFF) * scale >> 8;
+        int b = (rgb & 0xFF) * scale >> 8;
+        return (r << 16) | (g << 8) | b;
+    }
+
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getActiveWidth() {
+        return activeWidth;
+    }
+
+    //at most the width of the image
+    public void setActiveWidth(int activeWidth) {
+        this.activeWidth = Math.max(1, Math.min(width, activeWidth));
+    }
+}
@@ -0,0 +1,394 @@
+package game.view;
+
+import game.Game;
+import game.Player;
+import game.Visibility;
+import game.figure.Circle;
+import game.figure.Figure;
+import game.figure.Line;
+import game.figure.Point;
+import game.figure.Polygon;
+import game.util.Profiler;
+import game.util.Profiler.Phase;
+import game.util.PvsGrid;
+import game.util.RayHit;
+import game.util.SpatialGrid;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import static game.Player.PLAYER_WIDTH;
+import static game.Player.VIEW_ANGLE;
+
+//draws one frame of the game into any Graphics2D, independent of the window it ends up in
+public class Renderer {
+    private final Game game;
+    private final int WIDTH;
+    private final int HEIGHT;
+    private final int RADAR_SIZE = 300;
+    private final double DISTANCE = 15;
+    private final double BOB_STEP = 0.3;
+    //half a side of the player model, the width of a sprite at its distance
+    private final double SPRITE_HALF_WIDTH = PLAYER_WIDTH / Math.sqrt(2);
+    private double movementNumber = 0;
+    //world window shown on the radar
+    private double radarX;
+    private double radarY;
+    private double radarScale;
+    private double interpolation = 1;
+    private final FrameBuffer frameBuffer;
+    //null draws every frame at the full width with game.LINE_COUNT rays
+    private ResolutionController resolution;
+    //players drawn as sprites this frame, nearest first
+    private Player[] sprites = new Player[0];
+    private double[] spriteDistances = new double[0];
+    //the player drawn in every column, it hides the ones behind it and their health bars
+    private Player[] columnSprites = new Player[0];
+
+    public Renderer(Game game, int width, int height) {
+        this.game = game;
+        WIDTH = width;
+        HEIGHT = height;
+        frameBuffer = new FrameBuffer(WIDTH, HEIGHT);
+    }
+
+    //interpolation is the fraction of a tick since the last simulated state
+    public void render(Graphics2D g2d, double interpolation) {
+        long frameStart = System.nanoTime();
+        this.interpolation = interpolation;
+        frameBuffer.setActiveWidth(resolution == null ? WIDTH : resolution.getColumns());
+        frameBuffer.clear(Color.BLACK.getRGB(), Color.DARK_GRAY.getRGB());
+        drawPov(g2d);
+        g2d.setStroke(new BasicStroke(1));
+        long start = Profiler.start();
+        drawMap(g2d);
+        Profiler.stop(Phase.MAP, start);
+        start = Profiler.start();
+        drawHud(g2d);
+        Profiler.stop(Phase.HUD, start);
+        if (Profiler.isOverlay()) {
+            drawProfile(g2d);
+        }
+        if (resolution != null) {
+            resolution.frame(System.nanoTime() - frameStart);
+        }
+    }
+
+    //scales the internal width to the frame time, see ResolutionController
+    public void setResolution(ResolutionController resolution) {
+        this.resolution = resolution;
+    }
+
+    private void drawPov(Graphics2D g2d) {
+        //one ray per column below the full width, the columns are then stretched to the screen
+        int columns = frameBuffer.getActiveWidth();
+        int rays = resolution == null ? game.LINE_COUNT : columns;
+        long start = Profiler.start();
+        game.updateLines(interpolation, rays);
+        Profiler.stop(Phase.UPDATE_LINES, start);
+        RayHit[] hits = game.getHits();
+        if (hits.length == 0) {
+            return;
+        }
+
+        start = Profiler.start();
+        long spritesStart = Profiler.start();
+        drawSprites(hits, columns, rays);
+        Profiler.stop(Phase.SPRITES, spritesStart);
+        for (int i = 0; i < columns; i++) {
+            if (columnSprites[i] != null) {
+                continue;
+            }
+            RayHit hit = hits[(i * rays) / columns];
+            double len = hit.getDistance();
+            double height = (HEIGHT * DISTANCE / len);
+
+            frameBuffer.drawColumn(
+                i,
+                HEIGHT / 2 - height,
+                HEIGHT / 2 + height,
+                hit.getTexture(),
+                hit.getU(),
+                (int) (255 * (len / game.LINE_LENGTH))
+            );
+        }
+        if (columns == WIDTH) {
+            g2d.drawImage(frameBuffer.getImage(), 0, 0, null);
+        } else {
+            g2d.drawImage(frameBuffer.getImage(), 0, 0, WIDTH, HEIGHT, 0, 0, columns, HEIGHT, null);
+        }
+        Profiler.stop(Phase.COLUMNS, start);
+
+        start = Profiler.start();
+        drawBotsHP(g2d);
+        Profiler.stop(Phase.BOTS_HP, start);
+        drawGun(g2d);
+    }
+
+    //players as billboards, drawn before the walls: each one is projected once, the near ones first, and a column of
+    //it is only drawn where the ray of that column hit something farther and no nearer player took it yet. the wall
+    //pass then skips the taken columns, so every column is filled once however many players stand behind each other
+    private void drawSprites(RayHit[] hits, int columns, int rays) {
+        Player player = game.getPlayer();
+        Point eye = player.getPos(interpolation);
+        if (sprites.length < game.getParticipantCount()) {
+            sprites = new Player[game.getParticipantCount()];
+            spriteDistances = new double[game.getParticipantCount()];
+        }
+        if (columnSprites.length < columns) {
+            columnSprites = new Player[WIDTH];
+        }
+        Arrays.fill(columnSprites, 0, columns, null);
+        int count = 0;
+        for (int i = 0; i < game.getParticipantCount(); i++) {
+            Player sprite = game.getParticipant(i);
+            Point pos = sprite.getPos(interpolation);
+            double distance = Math.hypot(pos.x() - eye.x(), pos.y() - eye.y());
+            if (sprite == player || distance <= SPRITE_HALF_WIDTH || distance >= game.LINE_LENGTH) {
+                continue;
+            }
+            int slot = count++;
+            for (; slot > 0 && spriteDistances[slot - 1] > distance; slot--) {
+                sprites[slot] = sprites[slot - 1];
+                spriteDistances[slot] = spriteDistances[slot - 1];
+            }
+            sprites[slot] = sprite;
+            spriteDistances[slot] = distance;
+        }
+        for (int i = 0; i < count; i++) {
+            drawSprite(eye, player.getAlpha(), sprites[i], spriteDistances[i], hits, columns, rays);
+        }
+    }
+
+    private void drawSprite(
+        Point eye,
+        double alpha,
+        Player sprite,
+        double distance,
+        RayHit[] hits,
+        int columns,
+        int rays
+    ) {
+        Point pos = sprite.getPos(interpolation);
+        double angle = Math.atan2(pos.y() - eye.y(), pos.x() - eye.x()) - alpha;
+        angle -= 2 * Math.PI * Math.floor((angle + Math.PI) / (2 * Math.PI));
+        double perColumn = VIEW_ANGLE / columns;
+        double spread = Math.atan(SPRITE_HALF_WIDTH / distance);
+        double left = (VIEW_ANGLE / 2 - angle - spread) / perColumn;
+        double right = (VIEW_ANGLE / 2 - angle + spread) / perColumn;
+        if (right < 0 || left >= columns) {
+            return;
+        }
+        //the side of the model turned most towards the camera, numbered as in getModelTexture
+        double facing = Math.atan2(eye.y() - pos.y(), eye.x() - pos.x()) - sprite.getAlpha();
+        Texture texture = sprite.getModelTexture(Math.floorMod((int) Math.round(facing / (Math.PI / 2)), 4));
+        double height = HEIGHT * DISTANCE / distance;
+        int shade = (int) (255 * (distance / game.LINE_LENGTH));
+        for (int column = Math.max(0, (int) Math.ceil(left)); column <= Math.min(columns - 1, (int) right); column++) {
+            if (columnSprites[column] == null && hits[column * rays / columns].getDistance() > distance) {
+                frameBuffer.drawColumn(
+                    column,
+                    HEIGHT / 2 - height,
+                    HEIGHT / 2 + height,
+                    texture,
+                    (column - left) / (right - left),
+                    shade
+                );
+                columnSprites[column] = sprite;
+            }
+        }
+    }
+
+    private void drawBotsHP(Graphics2D g2d) {
+        Player player = game.getPlayer();
+        Visibility visibility = game.getVisibility();
+        RayHit[] hits = game.getHits();
+        int columns = frameBuffer.getActiveWidth();
+        double r = player.getAlpha() + VIEW_ANGLE / 2;
+        for (int i = 1; i < game.getParticipantCount(); i++) {
+            Player bot = game.getParticipant(i);
+            Point eye = player.getPos(interpolation), target = bot.getPos(interpolation);
+            double dx = target.x() - eye.x(), dy = target.y() - eye.y();
+            double distance = Math.hypot(dx, dy);
+            double fromRight = ((r - Math.atan2(dy, dx)) % (2 * Math.PI) + 2 * Math.PI) % (2 * Math.PI);
+            if (distance == 0 || fromRight > VIEW_ANGLE) {
+                continue;
+            }
+            int column = (int) (WIDTH * (fromRight / VIEW_ANGLE));
+            //the map is checked once per tick, the depth of this frame's rays catches what the camera moved behind
+            RayHit columnHit = hits[Math.min(hits.length - 1, column * (hits.length - 1) / WIDTH)];
+            Player columnSprite = columnSprites[Math.min(columns - 1, column * columns / WIDTH)];
+            if (visibility.isVisible(0, i) && columnHit.getDistance() >= distance &&
+                (columnSprite == null || columnSprite == bot)) {
+                double height = (HEIGHT * DISTANCE / distance);
+                int botsHp = bot.getHealthPoints();
+                g2d.setPaint(new Color(255, 255, 255, 100));
+                g2d.setStroke(new BasicStroke(10));
+                g2d.drawRect(
+                    (int) (column - height / 2),
+                    (int) (HEIGHT / 2 - height * 1.4),
+                    (int) (height),
+                    (int) (3 * height / 10)
+                );
+                g2d.setPaint(new Color(
+                    (int) (255 - 255 * (botsHp / 100.0)),
+                    (int) (255 * (botsHp / 100.0)),
+                    0,
+                    100
+                ));
+                g2d.fillRect(
+                    (int) (column - height / 2 + 5),
+                    (int) (HEIGHT / 2 - height * 1.4 + 5),
+                    (int) ((height - 10) * (botsHp / 100.0)),
+                    (int) (3 * height / 10 - 10)
+                );
+            }
+        }
+    }
+
+    private void drawGun(Graphics2D g2d) {
+        BufferedImage image = TextureManager.getImage("gun.png");
+        int gunHeight = (int) (7 * HEIGHT / 10 - Math.sin(movementNumber) * HEIGHT / 10);
+        g2d.drawImage(image, 2 * WIDTH / 3, gunHeight, 6 * WIDTH / 17, 2 * HEIGHT / 5, null);
+    }
+
+    private void drawMap(Graphics2D g2d) {
+        g2d.setPaint(Color.BLACK);
+        g2d.fillRect(0, 0, RADAR_SIZE, RADAR_SIZE);
+        //at most twice the view distance around the player, the whole map when it is smaller
+        double side = Math.min(game.SIZE, 2 * game.LINE_LENGTH);
+        Point pos = game.getPlayer().getPos();
+        radarX = Math.max(0, Math.min(game.SIZE - side, pos.x() - side / 2));
+        radarY = Math.max(0, Math.min(game.SIZE - side, pos.y() - side / 2));
+        radarScale = RADAR_SIZE / side;
+        Shape clip = g2d.getClip();
+        g2d.clipRect(0, 0, RADAR_SIZE + 1, RADAR_SIZE + 1);
+        g2d.setPaint(Color.WHITE);
+        //only what the player could see from its cell when the map has a PVS
+        SpatialGrid grid = game.getGrid().getSingle();
+        PvsGrid pvs = grid == null ? null : grid.getPvs();
+        int cell = pvs == null ? -1 : pvs.cell(pos.x(), pos.y());
+        if (cell >= 0) {
+            double[] walls = grid.getWalls();
+            for (int item = pvs.nextVisible(cell, 0); item >= 0; item = pvs.nextVisible(cell, item + 1)) {
+                if (item < grid.getWallCount()) {
+                    drawLine(g2d, walls[4 * item], walls[4 * item + 1], walls[4 * item + 2], walls[4 * item + 3]);
+                } else {
+                    drawCircle(g2d, grid.getCircle(item - grid.getWallCount()));
+                }
+            }
+        } else {
+            for (Figure figure : game.getFigures()) {
+                if (figure instanceof Circle circle) {
+                    drawCircle(g2d, circle);
+                }
+                if (figure instanceof Polygon polygon) {
+                    drawPolygon(g2d, polygon);
+                }
+            }
+        }
+
+        g2d.setColor(Color.GREEN);
+        drawPolygon(g2d, game.getPlayer().getModel());
+
+        g2d.setColor(Color.RED);
+        for (int i = 1; i < game.getParticipantCount(); i++) {
+            drawPolygon(g2d, game.getParticipant(i).getModel());
+        }
+        g2d.setClip(clip);
+    }
+
+    private void drawHud(Graphics2D g2d) {
+        //drawing crosshair
+        g2d.setColor(Color.WHITE);
+        g2d.drawLine(WIDTH / 2 - 5, HEIGHT / 2, WIDTH / 2 - 10, HEIGHT / 2);
+        g2d.drawLine(WIDTH / 2 + 5, HEIGHT / 2, WIDTH / 2 + 10, HEIGHT / 2);
+        g2d.drawLine(WIDTH / 2, HEIGHT / 2 - 5, WIDTH / 2, HEIGHT / 2 - 10);
+        g2d.drawLine(WIDTH / 2, HEIGHT / 2 + 5, WIDTH / 2, HEIGHT / 2 + 10);
+        //drawing health bar
+        int playersHP = game.getPlayer().getHealthPoints();
+        g2d.setPaint(new Color(255, 255, 255, 100));
+        g2d.setStroke(new BasicStroke(10));
+        g2d.drawRect(WIDTH / 40, 9 * HEIGHT / 10, WIDTH / 5, HEIGHT / 20);
+        g2d.setPaint(new Color((int) (255 - 255 * (playersHP / 100.0)), (int) (255 * (playersHP / 100.0)), 0, 100));
+        g2d.fillRect(
+            WIDTH / 40 + 5,
+            9 * HEIGHT / 10 + 5,
+            (int) ((WIDTH / 5 - 10) * (playersHP / 100.0)),
+            HEIGHT / 20 - 10
+        );
+        //draw stats
+        g2d.setFont(new Font("Verdana", Font.BOLD, HEIGHT / 20));
+        g2d.setColor(Color.WHITE);
+        g2d.drawString("Kills: " + game.getPlayer().getKills(), WIDTH / 50, 17 * HEIGHT / 20);
+        g2d.drawString("Deaths: " + game.getPlayer().getDeaths(), WIDTH / 50, 3 * HEIGHT / 4);
+    }
+
+    private void drawProfile(Graphics2D g2d) {
+        String[] lines = Profiler.getSummary();
+        if (resolution != null) {
+            lines = Arrays.copyOf(lines, lines.length + 1);
+            lines[lines.length - 1] = String.format(
+                "%-12s %5d x %d  frame %8.1f us",
+                "resolution",
+                resolution.getColumns(),
+                HEIGHT,
+                resolution.getAverage() / 1e3
+            );
+        }
+        int lineHeight = HEIGHT / 60;
+        g2d.setFont(new Font(Font.MONOSPACED, Font.PLAIN, lineHeight));
+        int width = 0;
+        for (String line : lines) {
+            width = Math.max(width, g2d.getFontMetrics().stringWidth(line) + lineHeight);
+        }
+        g2d.setPaint(new Color(0, 0, 0, 150));
+        g2d.fillRect(WIDTH - width, 0, width, (lines.length + 1) * lineHeight);
+        g2d.setColor(Color.WHITE);
+        for (int i = 0; i < lines.length; i++) {
+            g2d.drawString(lines[i], WIDTH - width + lineHeight / 2, (i + 1) * lineHeight);
+        }
+    }
+
+    private void drawPolygon(Graphics2D g2d, Polygon polygon) {
+        for (Line wall : polygon.getWalls()) {
+            drawLine(g2d, wall);
+        }
+    }
+
+    private void drawCircle(Graphics2D g2d, Circle circle) {
+        g2d.drawOval(
+            (int) ((circle.center().x() - circle.radius() - radarX) * radarScale),
+            (int) (RADAR_SIZE - (circle.center().y() + circle.radius() - radarY) * radarScale),
+            (int) (2 * circle.radius() * radarScale),
+            (int) (2 * circle.radius() * radarScale)
+        );
+    }
+
+    private void drawLine(Graphics2D g2d, Line line) {
+        drawLine(g2d, line.getX().x(), line.getX().y(), line.getY().x(), line.getY().y());
+    }
+
+    private void drawLine(Graphics2D g2d, double x1, double y1, double x2, double y2) {
+        g2d.drawLine(
+            (int) ((x1 - radarX) * radarScale),
+            (int) (RADAR_SIZE - (y1 - radarY) * radarScale),
+            (int) ((x2 - radarX) * radarScale),
+            (int) (RADAR_SIZE - (y2 - radarY) * radarScale)
+        );
+    }
+
+    public void keepMoving() {
+        movementNumber = (movementNumber + BOB_STEP) % (2 * Math.PI);
+    }
+
+    public void stopMoving() {
+        movementNumber = (movementNumber + BOB_STEP) % (2 * Math.PI);
+        if (movementNumber <= BOB_STEP / 2 || Math.abs(movementNumber - Math.PI) <= BOB_STEP / 2) {
+            movementNumber = 0;
+        }
+    }
+
+    public void recoil() {
+        movementNumber = Math.PI / 2;
+    }
+}
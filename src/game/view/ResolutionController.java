@@ -0,0 +1,76 @@
+package game.view;
+
+//picks the internal width of the next frame from how long the last ones took: the frame time is smoothed, the width
+//drops as soon as it goes over the budget but only grows back once it is well under it, and after every change it is
+//left alone for a while so the smoothed time can catch up with the new width instead of swinging back and forth
+public class ResolutionController {
+    private static final double SMOOTHING = 0.1;
+    //grow only below this share of the budget, a step up costs about STEP of the frame
+    private static final double RAISE_BELOW = 0.75;
+    private static final double STEP = 0.05;
+    private static final int COOLDOWN_FRAMES = 30;
+    private final int width;
+    private final double budget;
+    private final double minScale;
+    private final double maxScale;
+    private double scale;
+    private double average = -1;
+    //the first frames pay for class loading and the JIT, they say nothing about the machine
+    private int cooldown = COOLDOWN_FRAMES;
+
+    //width of the screen, budget in nanoseconds, the scales bound the share of the screen width that is rendered
+    public ResolutionController(int width, double budget, double minScale, double maxScale) {
+        this.width = width;
+        this.budget = budget;
+        this.minScale = Math.max(1.0 / width, Math.min(minScale, maxScale));
+        this.maxScale = Math.min(1, maxScale);
+        scale = this.maxScale;
+    }
+
+    //-Dshooter.frameBudget in milliseconds, -Dshooter.minScale and -Dshooter.maxScale
+    public static ResolutionController fromProperties(int width) {
+        return new ResolutionController(
+            width,
+            Double.parseDouble(System.getProperty("shooter.frameBudget", "8.3")) * 1e6,
+            Double.parseDouble(System.getProperty("shooter.minScale", "0.25")),
+            Double.parseDouble(System.getProperty("shooter.maxScale", "1"))
+        );
+    }
+
+    //called after every frame with the time it took to draw
+    public void frame(long nanos) {
+        //a stall counts as twice the budget at most, so one step never more than halves the width
+        double sample = Math.min(nanos, 2 * budget);
+        average = average < 0 ? sample : average + SMOOTHING * (sample - average);
+        if (cooldown > 0) {
+            cooldown--;
+            return;
+        }
+        double next = scale;
+        if (average > budget) {
+            //most of a frame is per column, so the width that fits is about proportional to the budget
+            next = Math.min(scale - STEP, scale * budget / average);
+        } else if (average < budget * RAISE_BELOW) {
+            next = scale + STEP;
+        }
+        next = Math.max(minScale, Math.min(maxScale, next));
+        if (next != scale) {
+            scale = next;
+            cooldown = COOLDOWN_FRAMES;
+        }
+    }
+
+    //columns to render and rays to cast for the next frame
+    public int getColumns() {
+        return Math.max(1, (int) Math.round(width * scale));
+    }
+
+    public double getScale() {
+        return scale;
+    }
+
+    //smoothed frame time in nanoseconds
+    public double getAverage() {
+        return average;
+    }
+}
@@ -1,27 +1,73 @@
 package game.view;
 
-import game.util.TextureUtils;
-
-import java.awt.Image;
+import java.awt.image.BufferedImage;
 
+//pixels are decoded on first use, so a headless simulation never touches the image files
 public class Texture {
+    //world length covered by one repetition of a texture that is not stretched
+    public static final double WORLD_SIZE = 30;
+    private final String name;
     private final boolean stretched;
-    private final Image[] image;
+    private int width;
+    private int height;
+    private volatile int[][] levels;
 
     public boolean isStretched() {
         return stretched;
     }
 
-    public Texture(String name) {
-        this(name, false);
+    Texture(String name, boolean stretched) {
+        this.name = name;
+        this.stretched = stretched;
     }
 
-    public Texture(String name, boolean stretched) {
-        this.stretched = stretched;
-        image = TextureUtils.getImage(name);
+    private int[][] load() {
+        int[][] result = levels;
+        if (result == null) {
+            synchronized (this) {
+                result = levels;
+                if (result == null) {
+                    BufferedImage image = TextureManager.getImage(name);
+                    width = image.getWidth();
+                    height = image.getHeight();
+                    result = TextureManager.getMipmaps(name);
+                    levels = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getLevels() {
+        return load().length;
+    }
+
+    public int getWidth(int level) {
+        load();
+        return Math.max(1, width >> level);
+    }
+
+    public int getHeight(int level) {
+        load();
+        return Math.max(1, height >> level);
+    }
+
+    //smallest level that still has at least the given number of rows
+    public int getLevel(double rows) {
+        int[][] levels = load();
+        int level = 0;
+        while (level + 1 < levels.length && getHeight(level + 1) >= rows) {
+            level++;
+        }
+        return level;
     }
 
-    public Image[] getImage() {
-        return image;
+    //column-major argb pixels, column x starts at x * getHeight(level)
+    public int[] getPixels(int level) {
+        return load()[level];
     }
 }
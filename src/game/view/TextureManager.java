@@ -0,0 +1,32 @@
+package game.view;
+
+import game.util.TextureUtils;
+import java.awt.image.BufferedImage;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+//decodes every image once and hands out shared textures
+public class TextureManager {
+    private static final Map<String, BufferedImage> IMAGES = new ConcurrentHashMap<>();
+    private static final Map<String, int[][]> MIPMAPS = new ConcurrentHashMap<>();
+    private static final Map<String, Texture> TEXTURES = new ConcurrentHashMap<>();
+
+    public static Texture getTexture(String name) {
+        return getTexture(name, false);
+    }
+
+    public static Texture getTexture(String name, boolean stretched) {
+        return TEXTURES.computeIfAbsent(name + (stretched ? ":stretched" : ""), key -> new Texture(name, stretched));
+    }
+
+    public static BufferedImage getImage(String name) {
+        return IMAGES.computeIfAbsent(name, TextureUtils::readImage);
+    }
+
+    static int[][] getMipmaps(String name) {
+        return MIPMAPS.computeIfAbsent(name, key -> {
+            BufferedImage image = getImage(name);
+            return TextureUtils.getMipmaps(TextureUtils.getColumns(image), image.getWidth(), image.getHeight());
+        });
+    }
+}